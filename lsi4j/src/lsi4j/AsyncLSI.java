@@ -0,0 +1,359 @@
+package lsi4j;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Non blocking searches on a model. Each search runs in an executor (virtual
+ * threads when the JVM has them) and returns a CompletableFuture. A search can
+ * have a deadline and it can be cancelled, the scan stops at the next block of
+ * documents. Only a limited number of scans run at the same time. The other
+ * searches wait for their turn in a bounded queue, without taking a thread of
+ * the executor, until their deadline and then they are rejected. A search is
+ * rejected at once when the queue is full.
+ * 
+ * @author Jabier Martinez
+ */
+public class AsyncLSI {
+
+	private final LSI4J model;
+	private final Executor executor;
+	private final Semaphore admission;
+
+	// Searches waiting for their turn
+	private final ConcurrentLinkedQueue<Waiting<?>> waiting = new ConcurrentLinkedQueue<Waiting<?>>();
+	private final AtomicInteger numberOfWaiting = new AtomicInteger();
+	private final int maxWaiting;
+
+	// Maximum wait for a turn when the search has no deadline
+	private long maxAdmissionWaitNanos = TimeUnit.SECONDS.toNanos(1);
+
+	// Shared by all the instances that do not have their own executor
+	private static Executor sharedExecutor;
+
+	// Rejects the searches whose wait for a turn is over
+	private static ScheduledThreadPoolExecutor admissionTimer;
+
+	/**
+	 * AsyncLSI with the shared default executor and as many concurrent scans as
+	 * processors
+	 * 
+	 * @param model
+	 */
+	public AsyncLSI(LSI4J model) {
+		this(model, sharedExecutor(), Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * AsyncLSI where up to 16 searches per concurrent scan wait for their turn
+	 * 
+	 * @param model
+	 * @param executor
+	 *            Where the searches run. It only receives the searches that
+	 *            have a turn
+	 * @param maxConcurrentScans
+	 *            Maximum number of scans running at the same time
+	 */
+	public AsyncLSI(LSI4J model, Executor executor, int maxConcurrentScans) {
+		this(model, executor, maxConcurrentScans, 16 * Math.max(1, maxConcurrentScans));
+	}
+
+	/**
+	 * AsyncLSI
+	 * 
+	 * @param model
+	 * @param executor
+	 *            Where the searches run. It only receives the searches that
+	 *            have a turn
+	 * @param maxConcurrentScans
+	 *            Maximum number of scans running at the same time
+	 * @param maxWaiting
+	 *            Maximum number of searches waiting for their turn
+	 */
+	public AsyncLSI(LSI4J model, Executor executor, int maxConcurrentScans, int maxWaiting) {
+		this.model = model;
+		this.executor = executor;
+		this.admission = new Semaphore(Math.max(1, maxConcurrentScans));
+		this.maxWaiting = Math.max(0, maxWaiting);
+	}
+
+	/**
+	 * The executor of the instances created without one, created once
+	 */
+	private static synchronized Executor sharedExecutor() {
+		if (sharedExecutor == null) {
+			sharedExecutor = defaultExecutor();
+		}
+		return sharedExecutor;
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor admissionTimer() {
+		if (admissionTimer == null) {
+			admissionTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "lsi4j-admission");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			admissionTimer.setRemoveOnCancelPolicy(true);
+		}
+		return admissionTimer;
+	}
+
+	/**
+	 * Executor with a virtual thread per task if the JVM supports them (Java 21)
+	 * or a pool of daemon threads otherwise. Each call creates a new executor
+	 */
+	public static Executor defaultExecutor() {
+		try {
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (Executor) virtual.invoke(null);
+		} catch (Exception e) {
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "lsi4j-search");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Set how long a search without deadline waits for its turn before being
+	 * rejected. Default is one second
+	 */
+	public void setMaxAdmissionWait(long time, TimeUnit unit) {
+		this.maxAdmissionWaitNanos = unit.toNanos(time);
+	}
+
+	/**
+	 * Apply LSI for a given query
+	 * 
+	 * @param query
+	 * @param timeout
+	 *            Time for the search or a negative value for no deadline
+	 * @param unit
+	 * @return List of similarities of the query for each document. It completes
+	 *         with a TimeoutException when the deadline is exceeded and with a
+	 *         RejectedExecutionException when there are too many searches
+	 */
+	public CompletableFuture<double[]> applyLSI(final List<String> query, long timeout, TimeUnit unit) {
+		return submit(new Search<double[]>() {
+			@Override
+			public double[] run(ScanControl control) {
+				return model.applyLSI(query, null, control);
+			}
+		}, timeout, unit);
+	}
+
+	/**
+	 * Apply LSI for a given query and get only the most similar documents
+	 * 
+	 * @param query
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @param filter
+	 *            null to accept all the documents
+	 * @param timeout
+	 *            Time for the search or a negative value for no deadline
+	 * @param unit
+	 * @return The k most similar documents, the most similar first. It completes
+	 *         with a TimeoutException when the deadline is exceeded and with a
+	 *         RejectedExecutionException when there are too many searches
+	 */
+	public CompletableFuture<List<ScoredDocument>> applyLSI(final List<String> query, final int k,
+			final DocumentFilter filter, long timeout, TimeUnit unit) {
+		return submit(new Search<List<ScoredDocument>>() {
+			@Override
+			public List<ScoredDocument> run(ScanControl control) {
+				return model.applyLSI(query, k, filter, control);
+			}
+		}, timeout, unit);
+	}
+
+	/**
+	 * @return The number of scans that can start now
+	 */
+	public int getAvailableScans() {
+		return admission.availablePermits();
+	}
+
+	/**
+	 * @return The number of searches waiting for their turn
+	 */
+	public int getWaitingSearches() {
+		return numberOfWaiting.get();
+	}
+
+	private interface Search<T> {
+		T run(ScanControl control);
+	}
+
+	/**
+	 * A search that waits for its turn. It starts once, either it runs or it
+	 * is rejected when its wait is over
+	 */
+	private static final class Waiting<T> {
+
+		final Search<T> search;
+		final ScanControl control;
+		final CompletableFuture<T> future;
+		final AtomicBoolean started = new AtomicBoolean();
+		volatile ScheduledFuture<?> timeout;
+
+		Waiting(Search<T> search, ScanControl control, CompletableFuture<T> future) {
+			this.search = search;
+			this.control = control;
+			this.future = future;
+		}
+	}
+
+	private <T> CompletableFuture<T> submit(final Search<T> search, long timeout, TimeUnit unit) {
+		final ScanControl control = new ScanControl(timeout < 0 ? -1 : unit.toNanos(timeout));
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+
+		// Cancelling the future stops the scan
+		future.whenComplete(new BiConsumer<T, Throwable>() {
+			@Override
+			public void accept(T result, Throwable error) {
+				if (future.isCancelled()) {
+					control.cancel();
+				}
+			}
+		});
+
+		final Waiting<T> pending = new Waiting<T>(search, control, future);
+		if (admission.tryAcquire()) {
+			start(pending);
+			return future;
+		}
+		long wait = Math.min(control.remainingNanos(), maxAdmissionWaitNanos);
+		if (wait <= 0) {
+			reject(pending);
+			return future;
+		}
+		if (numberOfWaiting.incrementAndGet() > maxWaiting) {
+			numberOfWaiting.decrementAndGet();
+			future.completeExceptionally(new RejectedExecutionException("Too many waiting searches"));
+			return future;
+		}
+		waiting.add(pending);
+		pending.timeout = admissionTimer().schedule(new Runnable() {
+			@Override
+			public void run() {
+				reject(pending);
+				if (waiting.remove(pending)) {
+					numberOfWaiting.decrementAndGet();
+				}
+			}
+		}, wait, TimeUnit.NANOSECONDS);
+		// A turn may have been given back before the search was queued
+		next();
+		return future;
+	}
+
+	/**
+	 * Complete a search that did not get a turn
+	 */
+	private void reject(Waiting<?> search) {
+		if (!search.started.compareAndSet(false, true)) {
+			return;
+		}
+		if (search.control.isExpired()) {
+			search.future.completeExceptionally(new TimeoutException("The deadline was exceeded"));
+		} else {
+			search.future.completeExceptionally(new RejectedExecutionException("Too many concurrent scans"));
+		}
+	}
+
+	/**
+	 * Give the free turns to the searches that are waiting
+	 */
+	private void next() {
+		while (!waiting.isEmpty() && admission.tryAcquire()) {
+			Waiting<?> search = waiting.poll();
+			if (search == null) {
+				admission.release();
+				return;
+			}
+			numberOfWaiting.decrementAndGet();
+			ScheduledFuture<?> timeout = search.timeout;
+			if (timeout != null) {
+				timeout.cancel(false);
+			}
+			if (search.started.get() || search.future.isDone()) {
+				// Rejected or cancelled while it was waiting
+				admission.release();
+				continue;
+			}
+			start(search);
+		}
+	}
+
+	/**
+	 * Run a search that has a turn in the executor
+	 */
+	private <T> void start(final Waiting<T> search) {
+		if (!search.started.compareAndSet(false, true)) {
+			admission.release();
+			return;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					scan(search);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			admission.release();
+			search.future.completeExceptionally(e);
+			next();
+		}
+	}
+
+	private <T> void scan(Waiting<T> search) {
+		T result = null;
+		Throwable error = null;
+		try {
+			if (!search.future.isDone()) {
+				result = search.search.run(search.control);
+			}
+		} catch (Throwable t) {
+			error = t;
+		} finally {
+			// Give back the turn before the caller sees the result
+			admission.release();
+			next();
+		}
+		if (error == null) {
+			search.future.complete(result);
+		} else if (!(error instanceof CancellationException)) {
+			search.future.completeExceptionally(error);
+		} else if (search.control.isCancelled()) {
+			search.future.cancel(false);
+		} else {
+			search.future.completeExceptionally(new TimeoutException(error.getMessage()));
+		}
+	}
+
+}
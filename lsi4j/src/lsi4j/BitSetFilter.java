@@ -0,0 +1,41 @@
+package lsi4j;
+
+import java.util.BitSet;
+
+/**
+ * Filter with the set of accepted documents
+ * 
+ * @author Jabier Martinez
+ */
+final class BitSetFilter implements DocumentFilter {
+
+	private final BitSet accepted;
+
+	BitSetFilter(BitSet accepted) {
+		this.accepted = accepted;
+	}
+
+	BitSet getAccepted() {
+		return accepted;
+	}
+
+	@Override
+	public boolean accept(int document) {
+		return accepted.get(document);
+	}
+
+	@Override
+	public int[] selectedDocuments(int documents, double ratio) {
+		int cardinality = accepted.get(0, documents).cardinality();
+		if (cardinality > documents * ratio) {
+			return null;
+		}
+		int[] ids = new int[cardinality];
+		int n = 0;
+		for (int i = accepted.nextSetBit(0); i >= 0 && i < documents; i = accepted.nextSetBit(i + 1)) {
+			ids[n++] = i;
+		}
+		return ids;
+	}
+
+}
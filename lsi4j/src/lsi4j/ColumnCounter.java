@@ -0,0 +1,94 @@
+package lsi4j;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the terms of one document at a time directly in its sparse column of
+ * the term-document matrix: the rows of the terms that appear, in increasing
+ * order, and their weights. The arrays are reused for the next document.
+ * 
+ * @author Jabier Martinez
+ */
+final class ColumnCounter implements TermExpansion.TermVisitor {
+
+	private final Map<String, Integer> termIndex;
+
+	// Weight of each term in the current document and if it appears
+	private final double[] counts;
+	private final boolean[] seen;
+
+	private int[] rows = new int[16];
+	private double[] values = new double[16];
+	private int length;
+
+	/**
+	 * @param terms
+	 *            The terms (rows) in lowercase
+	 */
+	ColumnCounter(List<String> terms) {
+		this.termIndex = new HashMap<String, Integer>();
+		for (int i = 0; i < terms.size(); i++) {
+			termIndex.put(terms.get(i), i);
+		}
+		this.counts = new double[terms.size()];
+		this.seen = new boolean[terms.size()];
+	}
+
+	/**
+	 * Count the terms of a structured document
+	 * 
+	 * @return The number of different terms
+	 */
+	int count(StructuredDocument document, TermExpansion expansion) {
+		length = 0;
+		expansion.expand(document, this);
+		return finish();
+	}
+
+	@Override
+	public void visit(String term, double weight) {
+		Integer t = termIndex.get(term);
+		if (t == null) {
+			return;
+		}
+		if (!seen[t]) {
+			seen[t] = true;
+			if (length == rows.length) {
+				rows = Arrays.copyOf(rows, length * 2);
+			}
+			rows[length++] = t;
+		}
+		counts[t] += weight;
+	}
+
+	private int finish() {
+		Arrays.sort(rows, 0, length);
+		if (values.length < rows.length) {
+			values = new double[rows.length];
+		}
+		for (int i = 0; i < length; i++) {
+			values[i] = counts[rows[i]];
+			counts[rows[i]] = 0;
+			seen[rows[i]] = false;
+		}
+		return length;
+	}
+
+	/**
+	 * @return The rows of the last document. Only valid until the next count
+	 */
+	int[] rows() {
+		return rows;
+	}
+
+	/**
+	 * @return The weights of the last document. Only valid until the next count
+	 */
+	double[] values() {
+		return values;
+	}
+
+}
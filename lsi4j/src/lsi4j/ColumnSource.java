@@ -0,0 +1,47 @@
+package lsi4j;
+
+import java.io.IOException;
+
+/**
+ * A sparse matrix that can only be read column by column, for example because
+ * it does not fit in memory. Each call to
+ * {@link #forEachColumn(ColumnVisitor)} is a pass over the data.
+ * 
+ * @author Jabier Martinez
+ */
+public interface ColumnSource {
+
+	/**
+	 * Receives the non zero values of each column
+	 */
+	interface ColumnVisitor {
+
+		/**
+		 * @param column
+		 *            Index of the column
+		 * @param rows
+		 *            Rows of the non zero values. Only valid during the call
+		 * @param values
+		 *            The non zero values. Only valid during the call
+		 * @param length
+		 *            Number of non zero values in the arrays
+		 */
+		void visit(int column, int[] rows, double[] values, int length);
+	}
+
+	/**
+	 * @return The number of rows (terms)
+	 */
+	int getRowDimension();
+
+	/**
+	 * @return The number of columns (documents)
+	 */
+	int getColumnDimension();
+
+	/**
+	 * Visit all the columns in order
+	 */
+	void forEachColumn(ColumnVisitor visitor) throws IOException;
+
+}
@@ -0,0 +1,29 @@
+package lsi4j;
+
+import java.io.IOException;
+
+/**
+ * A way to calculate the first k singular values and vectors of a
+ * term-document matrix
+ * 
+ * @author Jabier Martinez
+ */
+public interface DecompositionStrategy {
+
+	/**
+	 * @return A short name for reports
+	 */
+	String getName();
+
+	/**
+	 * Decompose a matrix
+	 * 
+	 * @param a
+	 *            The term-document matrix
+	 * @param k
+	 *            Number of singular values and vectors to compute
+	 * @return The truncated decomposition
+	 */
+	TruncatedDecomposition decompose(ColumnSource a, int k) throws IOException;
+
+}
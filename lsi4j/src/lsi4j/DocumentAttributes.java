@@ -0,0 +1,135 @@
+package lsi4j;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Optional integer attributes of the documents (e.g. tenant, date or language)
+ * to filter the searches. Each attribute is stored as one array with the value
+ * of each document.
+ * 
+ * @author Jabier Martinez
+ */
+public class DocumentAttributes {
+
+	private final int documents;
+
+	private final Map<String, int[]> values = new HashMap<String, int[]>();
+
+	// Documents that have a value for each attribute
+	private final Map<String, BitSet> present = new HashMap<String, BitSet>();
+
+	/**
+	 * DocumentAttributes
+	 * 
+	 * @param documents
+	 *            Number of documents of the model
+	 */
+	public DocumentAttributes(int documents) {
+		this.documents = documents;
+	}
+
+	/**
+	 * Set the value of an attribute for a document
+	 */
+	public synchronized void setAttribute(String name, int document, int value) {
+		int[] v = values.get(name);
+		if (v == null) {
+			v = new int[documents];
+			values.put(name, v);
+			present.put(name, new BitSet(documents));
+		}
+		v[document] = value;
+		present.get(name).set(document);
+	}
+
+	/**
+	 * Set the value of an attribute for all the documents
+	 * 
+	 * @param name
+	 * @param documentValues
+	 *            One value for each document
+	 */
+	public synchronized void setAttribute(String name, int[] documentValues) {
+		if (documentValues.length != documents) {
+			throw new IllegalArgumentException("One value is needed for each document");
+		}
+		BitSet all = new BitSet(documents);
+		all.set(0, documents);
+		values.put(name, documentValues.clone());
+		present.put(name, all);
+	}
+
+	/**
+	 * @return true if the document has a value for the attribute
+	 */
+	public synchronized boolean hasAttribute(String name, int document) {
+		BitSet p = present.get(name);
+		return p != null && p.get(document);
+	}
+
+	/**
+	 * @return The value of the attribute for the document
+	 * @throws IllegalArgumentException
+	 *             If the document does not have the attribute
+	 */
+	public synchronized int getAttribute(String name, int document) {
+		if (!hasAttribute(name, document)) {
+			throw new IllegalArgumentException("Document " + document + " does not have " + name);
+		}
+		return values.get(name)[document];
+	}
+
+	/**
+	 * @return The number of documents
+	 */
+	public int getNumberOfDocuments() {
+		return documents;
+	}
+
+	/**
+	 * Documents whose attribute is equal to a value
+	 */
+	public DocumentFilter equalTo(String name, int value) {
+		return between(name, value, value);
+	}
+
+	/**
+	 * Documents whose attribute is between two values (both included)
+	 */
+	public synchronized DocumentFilter between(String name, int min, int max) {
+		BitSet accepted = new BitSet(documents);
+		BitSet p = present.get(name);
+		if (p != null) {
+			int[] v = values.get(name);
+			for (int i = p.nextSetBit(0); i >= 0; i = p.nextSetBit(i + 1)) {
+				if (v[i] >= min && v[i] <= max) {
+					accepted.set(i);
+				}
+			}
+		}
+		return new BitSetFilter(accepted);
+	}
+
+	/**
+	 * Documents whose attribute is one of the values
+	 */
+	public synchronized DocumentFilter in(String name, int... accepted) {
+		int[] sorted = accepted.clone();
+		Arrays.sort(sorted);
+		BitSet result = new BitSet(documents);
+		BitSet p = present.get(name);
+		if (p != null) {
+			int[] v = values.get(name);
+			for (int i = p.nextSetBit(0); i >= 0; i = p.nextSetBit(i + 1)) {
+				if (Arrays.binarySearch(sorted, v[i]) >= 0) {
+					result.set(i);
+				}
+			}
+		}
+		return new BitSetFilter(result);
+	}
+
+}
@@ -0,0 +1,69 @@
+package lsi4j;
+
+import java.util.BitSet;
+
+/**
+ * Decides which documents are scored by a search. The documents that are not
+ * accepted are skipped before computing their cosine.
+ * 
+ * @author Jabier Martinez
+ */
+public interface DocumentFilter {
+
+	/**
+	 * @param document
+	 *            Index of the document in the model
+	 * @return true if the document must be scored
+	 */
+	boolean accept(int document);
+
+	/**
+	 * The accepted documents when they are known in advance and they are few
+	 * enough to visit only them instead of all the documents
+	 * 
+	 * @param documents
+	 *            Number of documents of the model
+	 * @param ratio
+	 *            Maximum ratio of accepted documents
+	 * @return The accepted documents in increasing order or null to check each
+	 *         document with {@link #accept(int)}
+	 */
+	default int[] selectedDocuments(int documents, double ratio) {
+		return null;
+	}
+
+	/**
+	 * Filter with the set of accepted documents
+	 * 
+	 * @param accepted
+	 *            The bit of each accepted document is set. It must not change
+	 *            while the filter is used
+	 */
+	static DocumentFilter of(BitSet accepted) {
+		return new BitSetFilter(accepted);
+	}
+
+	/**
+	 * Documents accepted by both filters
+	 */
+	static DocumentFilter and(final DocumentFilter a, final DocumentFilter b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (a instanceof BitSetFilter && b instanceof BitSetFilter) {
+			BitSet both = (BitSet) ((BitSetFilter) a).getAccepted().clone();
+			both.and(((BitSetFilter) b).getAccepted());
+			return new BitSetFilter(both);
+		}
+		return new DocumentFilter() {
+			@Override
+			public boolean accept(int document) {
+				return a.accept(document) && b.accept(document);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,316 @@
+package lsi4j;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The rows of a reduced factor (U_k or V_k) stored in double or in float. The
+ * values are always read and accumulated in double so only the storage, and
+ * the memory traffic of a scan, change with the precision.
+ * 
+ * All the rows are in a single flat array, one k-length row after the other,
+ * so a scan reads the memory in order and a factor is one object whatever the
+ * number of rows.
+ * 
+ * @author Jabier Martinez
+ */
+abstract class Factor {
+
+	final int size;
+	final int dimension;
+
+	Factor(int size, int dimension) {
+		this.size = size;
+		this.dimension = dimension;
+	}
+
+	/**
+	 * Store some rows
+	 * 
+	 * @param rows
+	 *            The rows. They are copied
+	 * @param precision
+	 *            {@link LSI4J#PRECISION_DOUBLE} or {@link LSI4J#PRECISION_FLOAT}
+	 */
+	static Factor of(double[][] rows, int precision) {
+		int dimension = rows.length == 0 ? 0 : rows[0].length;
+		double[] values = new double[length(rows.length, dimension)];
+		for (int i = 0; i < rows.length; i++) {
+			System.arraycopy(rows[i], 0, values, i * dimension, dimension);
+		}
+		return of(values, rows.length, dimension, precision);
+	}
+
+	/**
+	 * Store some rows
+	 * 
+	 * @param values
+	 *            The rows one after the other. They are not copied in double
+	 *            precision
+	 * @param size
+	 *            Number of rows
+	 * @param dimension
+	 *            Length of the rows
+	 * @param precision
+	 *            {@link LSI4J#PRECISION_DOUBLE} or {@link LSI4J#PRECISION_FLOAT}
+	 */
+	static Factor of(double[] values, int size, int dimension, int precision) {
+		if (values.length != length(size, dimension)) {
+			throw new IllegalArgumentException("Expected " + size + " rows of " + dimension + " values");
+		}
+		if (precision == LSI4J.PRECISION_FLOAT) {
+			float[] floats = new float[values.length];
+			for (int i = 0; i < values.length; i++) {
+				floats[i] = (float) values[i];
+			}
+			return new FloatFactor(floats, size, dimension);
+		}
+		return new DoubleFactor(values, size, dimension);
+	}
+
+	/**
+	 * Read the values written by {@link #write(DataOutput)}
+	 * 
+	 * @param precision
+	 *            The precision of the factor that was written
+	 */
+	static Factor read(DataInput in, int size, int dimension, int precision) throws IOException {
+		int length;
+		try {
+			length = length(size, dimension);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage());
+		}
+		if (precision == LSI4J.PRECISION_FLOAT) {
+			float[] values = new float[length];
+			for (int i = 0; i < length; i++) {
+				values[i] = in.readFloat();
+			}
+			return new FloatFactor(values, size, dimension);
+		}
+		double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = in.readDouble();
+		}
+		return new DoubleFactor(values, size, dimension);
+	}
+
+	/**
+	 * Number of values of some rows in a single array. The offsets of the rows
+	 * (i*dimension) fit in an int when this does
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If they do not fit in an array
+	 */
+	static int length(int size, int dimension) {
+		if (size < 0 || dimension < 0) {
+			throw new IllegalArgumentException("Invalid factor of " + size + " rows of " + dimension + " values");
+		}
+		try {
+			return Math.multiplyExact(size, dimension);
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("A factor of " + size + " rows of " + dimension
+					+ " values does not fit in an array, use a lower k or fewer documents per model (see ShardedLSI)");
+		}
+	}
+
+	/**
+	 * @return The number of rows
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return The length of the rows
+	 */
+	int dimension() {
+		return dimension;
+	}
+
+	abstract double get(int i, int j);
+
+	/**
+	 * Dot product of a row and a vector
+	 */
+	abstract double dot(int i, double[] q);
+
+	/**
+	 * Dot product of two rows
+	 */
+	abstract double dot(int i, int j);
+
+	/**
+	 * acc += w*row
+	 */
+	abstract void addRow(int i, double w, double[] acc);
+
+	/**
+	 * @return A copy of the row in double
+	 */
+	abstract double[] copyRow(int i);
+
+	/**
+	 * @return A factor with only some rows, in the same precision
+	 */
+	abstract Factor select(int[] rows);
+
+	/**
+	 * @return The approximate number of bytes of the stored values
+	 */
+	abstract long bytes();
+
+	/**
+	 * Write the values in their precision, one row after the other
+	 */
+	abstract void write(DataOutput out) throws IOException;
+
+	static final class DoubleFactor extends Factor {
+
+		private final double[] values;
+
+		DoubleFactor(double[] values, int size, int dimension) {
+			super(size, dimension);
+			this.values = values;
+		}
+
+		@Override
+		double get(int i, int j) {
+			return values[i * dimension + j];
+		}
+
+		@Override
+		double dot(int i, double[] q) {
+			int offset = i * dimension;
+			double scalaire = 0.0;
+			for (int j = 0; j < dimension; j++) {
+				scalaire += values[offset + j] * q[j];
+			}
+			return scalaire;
+		}
+
+		@Override
+		double dot(int i, int j) {
+			int a = i * dimension;
+			int b = j * dimension;
+			double scalaire = 0.0;
+			for (int n = 0; n < dimension; n++) {
+				scalaire += values[a + n] * values[b + n];
+			}
+			return scalaire;
+		}
+
+		@Override
+		void addRow(int i, double w, double[] acc) {
+			int offset = i * dimension;
+			for (int j = 0; j < dimension; j++) {
+				acc[j] += w * values[offset + j];
+			}
+		}
+
+		@Override
+		double[] copyRow(int i) {
+			double[] copy = new double[dimension];
+			System.arraycopy(values, i * dimension, copy, 0, dimension);
+			return copy;
+		}
+
+		@Override
+		Factor select(int[] selected) {
+			double[] newValues = new double[length(selected.length, dimension)];
+			for (int r = 0; r < selected.length; r++) {
+				System.arraycopy(values, selected[r] * dimension, newValues, r * dimension, dimension);
+			}
+			return new DoubleFactor(newValues, selected.length, dimension);
+		}
+
+		@Override
+		long bytes() {
+			return 8L * values.length;
+		}
+
+		@Override
+		void write(DataOutput out) throws IOException {
+			for (double value : values) {
+				out.writeDouble(value);
+			}
+		}
+	}
+
+	static final class FloatFactor extends Factor {
+
+		private final float[] values;
+
+		FloatFactor(float[] values, int size, int dimension) {
+			super(size, dimension);
+			this.values = values;
+		}
+
+		@Override
+		double get(int i, int j) {
+			return values[i * dimension + j];
+		}
+
+		@Override
+		double dot(int i, double[] q) {
+			int offset = i * dimension;
+			double scalaire = 0.0;
+			for (int j = 0; j < dimension; j++) {
+				scalaire += values[offset + j] * q[j];
+			}
+			return scalaire;
+		}
+
+		@Override
+		double dot(int i, int j) {
+			int a = i * dimension;
+			int b = j * dimension;
+			double scalaire = 0.0;
+			for (int n = 0; n < dimension; n++) {
+				scalaire += (double) values[a + n] * values[b + n];
+			}
+			return scalaire;
+		}
+
+		@Override
+		void addRow(int i, double w, double[] acc) {
+			int offset = i * dimension;
+			for (int j = 0; j < dimension; j++) {
+				acc[j] += w * values[offset + j];
+			}
+		}
+
+		@Override
+		double[] copyRow(int i) {
+			int offset = i * dimension;
+			double[] copy = new double[dimension];
+			for (int j = 0; j < dimension; j++) {
+				copy[j] = values[offset + j];
+			}
+			return copy;
+		}
+
+		@Override
+		Factor select(int[] selected) {
+			float[] newValues = new float[length(selected.length, dimension)];
+			for (int r = 0; r < selected.length; r++) {
+				System.arraycopy(values, selected[r] * dimension, newValues, r * dimension, dimension);
+			}
+			return new FloatFactor(newValues, selected.length, dimension);
+		}
+
+		@Override
+		long bytes() {
+			return 4L * values.length;
+		}
+
+		@Override
+		void write(DataOutput out) throws IOException {
+			for (float value : values) {
+				out.writeFloat(value);
+			}
+		}
+	}
+
+}
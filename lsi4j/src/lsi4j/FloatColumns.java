@@ -0,0 +1,122 @@
+package lsi4j;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A term-document matrix in memory column by column (one column per document)
+ * with only the non zero values, stored in float. The values are given to the
+ * visitors in double so the products are accumulated in double. The counts of
+ * the terms are exact in float up to 2^24.
+ * 
+ * @author Jabier Martinez
+ */
+public class FloatColumns implements ColumnSource {
+
+	private final int rows;
+	private final int columns;
+
+	// Start of each column in rowIndexes and values and the end of the last one
+	private final int[] starts;
+	private final int[] rowIndexes;
+	private final float[] values;
+
+	private FloatColumns(int rows, int columns, int[] starts, int[] rowIndexes, float[] values) {
+		this.rows = rows;
+		this.columns = columns;
+		this.starts = starts;
+		this.rowIndexes = rowIndexes;
+		this.values = values;
+	}
+
+	/**
+	 * Count the terms of some documents. The documents are read only once and
+	 * the occurrences of each document are counted directly in its sparse
+	 * column.
+	 * 
+	 * @param terms
+	 *            The terms (rows) in lowercase, see
+	 *            {@link SparseMatrixFile#getDifferentTerms}
+	 * @param documents
+	 *            The documents, each of them is a list of words
+	 */
+	public static FloatColumns of(List<String> terms, Iterable<List<String>> documents) {
+		return of(terms, StructuredDocument.ofAll(documents), new TermExpansion());
+	}
+
+	/**
+	 * Count the terms of some structured documents. The n-grams and the weights
+	 * of the fields are counted directly in the sparse column of each document.
+	 * 
+	 * @param terms
+	 *            The terms (rows), see {@link TermExpansion#getDifferentTerms}
+	 * @param documents
+	 *            The documents
+	 * @param expansion
+	 *            How the fields become terms
+	 */
+	public static FloatColumns of(List<String> terms, Iterable<StructuredDocument> documents,
+			TermExpansion expansion) {
+		ColumnCounter counter = new ColumnCounter(terms);
+		int[] starts = new int[17];
+		int[] rowIndexes = new int[16];
+		float[] values = new float[16];
+		int columns = 0;
+		int nonZeros = 0;
+		for (StructuredDocument document : documents) {
+			int length = counter.count(document, expansion);
+			if (rowIndexes.length < nonZeros + length) {
+				int capacity = Math.max(rowIndexes.length * 2, nonZeros + length);
+				rowIndexes = Arrays.copyOf(rowIndexes, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+			for (int i = 0; i < length; i++) {
+				rowIndexes[nonZeros] = counter.rows()[i];
+				values[nonZeros++] = (float) counter.values()[i];
+			}
+			if (columns + 2 > starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+			}
+			starts[++columns] = nonZeros;
+		}
+		return new FloatColumns(terms.size(), columns, Arrays.copyOf(starts, columns + 1),
+				Arrays.copyOf(rowIndexes, nonZeros), Arrays.copyOf(values, nonZeros));
+	}
+
+	@Override
+	public int getRowDimension() {
+		return rows;
+	}
+
+	@Override
+	public int getColumnDimension() {
+		return columns;
+	}
+
+	/**
+	 * @return The number of non zero values
+	 */
+	public int getNonZeros() {
+		return values.length;
+	}
+
+	@Override
+	public void forEachColumn(ColumnVisitor visitor) {
+		int[] columnRows = new int[16];
+		double[] columnValues = new double[16];
+		for (int j = 0; j < columns; j++) {
+			int start = starts[j];
+			int length = starts[j + 1] - start;
+			if (columnRows.length < length) {
+				columnRows = new int[length];
+				columnValues = new double[length];
+			}
+			System.arraycopy(rowIndexes, start, columnRows, 0, length);
+			for (int i = 0; i < length; i++) {
+				columnValues[i] = values[start + i];
+			}
+			visitor.visit(j, columnRows, columnValues, length);
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package lsi4j;
+
+import java.io.IOException;
+
+import Jama.Matrix;
+import Jama.SingularValueDecomposition;
+
+/**
+ * The full SVD of Jama truncated to k. The matrix is loaded in memory as a
+ * dense matrix. This is what {@link LSI4J} uses and the reference to validate
+ * other strategies.
+ * 
+ * @author Jabier Martinez
+ */
+public class JamaDecomposition implements DecompositionStrategy {
+
+	@Override
+	public String getName() {
+		return "Jama";
+	}
+
+	@Override
+	public TruncatedDecomposition decompose(ColumnSource a, int k) throws IOException {
+		final double[][] dense = new double[a.getRowDimension()][a.getColumnDimension()];
+		a.forEachColumn(new ColumnSource.ColumnVisitor() {
+			@Override
+			public void visit(int column, int[] rows, double[] values, int length) {
+				for (int n = 0; n < length; n++) {
+					dense[rows[n]][column] = values[n];
+				}
+			}
+		});
+		SingularValueDecomposition svd = new Matrix(dense).svd();
+		k = Math.min(k, svd.getSingularValues().length);
+		Matrix u = svd.getU();
+		Matrix v = svd.getV();
+		double[] s = new double[k];
+		System.arraycopy(svd.getSingularValues(), 0, s, 0, k);
+		return new TruncatedDecomposition(u.getMatrix(0, u.getRowDimension() - 1, 0, k - 1), s,
+				v.getMatrix(0, v.getRowDimension() - 1, 0, k - 1));
+	}
+
+}
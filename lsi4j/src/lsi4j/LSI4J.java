@@ -1,8 +1,21 @@
 package lsi4j;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.DoubleAdder;
 
 import Jama.Matrix;
 import Jama.SingularValueDecomposition;
@@ -27,19 +40,71 @@ public class LSI4J {
 	public static final int SORT_NONE = 0;
 	public static final int SORT_ASCENDING = 1;
 
+	// How the reduced matrices are stored
+	public static final int PRECISION_DOUBLE = 0;
+	public static final int PRECISION_FLOAT = 1;
+
 	// Decide if sort or not the words
-	private static int sortType;
+	private int sortType;
+
+	private List<String> allTerms;
 
-	private static List<String> allTerms;
+	// Position of each term in allTerms
+	private Map<String, Integer> termIds;
 
-	private SingularValueDecomposition svd;
+	// Bytes of the terms and their dictionary, -1 until they are measured
+	private volatile long termBytes = -1;
 
-	// Double[] documents and query
-	private static double[][] documentsMatrix;
-	private static double[] queryMatrix;
+	// How the words of the queries become terms, null for the words as they are
+	private TermExpansion termExpansion;
 
 	// Lower Rank Decomposition (lra) Value
-	private static int approximationValue;
+	private int approximationValue;
+
+	// Storage of the reduced matrices
+	private int precision;
+
+	// Scale used to round small negative values when computing the cosine
+	static final int COSINE_SCALE = 4;
+
+	// Header of a serialized model
+	private static final int MAGIC = 0x4c53494d;
+	private static final int VERSION = 1;
+
+	// Reduced U and inverse of the reduced S to fold in the queries
+	private Factor uk;
+	private double[] skInverse;
+
+	// Rows of the reduced V, one for each document that was not compacted
+	private volatile LatentVectors documentVectors;
+
+	// The first k singular values
+	private double[] singularValues;
+
+	// Rows of V_k*S_k and U_k*S_k, created when they are first needed
+	private volatile LatentVectors documentSpace;
+	private LatentVectors termSpace;
+
+	// Optional attributes of the documents to filter them
+	private DocumentAttributes documentAttributes;
+
+	// Removed documents and their compaction
+	private Tombstones removedDocuments;
+	private final Object compactionLock = new Object();
+	private final AtomicBoolean compacting = new AtomicBoolean();
+	private Executor compactionExecutor = ForkJoinPool.commonPool();
+	private double compactionThreshold = 0.2;
+
+	// Sum of the squared singular values and the part in the removed documents
+	private double totalMass;
+	private final DoubleAdder removedMass = new DoubleAdder();
+	private double redecompositionThreshold;
+	private Runnable redecompositionListener;
+	private final AtomicBoolean redecompositionNotified = new AtomicBoolean();
+
+	// Where and how the documents are scanned
+	private ForkJoinPool scoringPool = ForkJoinPool.commonPool();
+	private int scoringBlockSize;
 
 	/**
 	 * LSI4J
@@ -62,21 +127,195 @@ public class LSI4J {
 	 */
 	public LSI4J(List<List<String>> documents, int approximationType, double approximationValue,
 			int sortTermsFromDocuments) {
+		this(documents, approximationType, approximationValue, sortTermsFromDocuments, PRECISION_DOUBLE);
+	}
+
+	/**
+	 * LSI4J
+	 * 
+	 * @param documents
+	 *            A list of documents where each of them is a list of words
+	 * @param approximationType
+	 *            Use constants NONE, K_VALUE or PERCENTAGE. Default is NONE
+	 * @param approximationValue
+	 *            Ignored in case of NONE, The K in case of K_VALUE, or a PERCENTAGE
+	 *            where 1.0 = 100%
+	 * @param sortTermsFromDocuments
+	 *            Use constants NONE or ASCENDING (no impact on the results).
+	 *            Default is NONE
+	 * @param precision
+	 *            Use constants DOUBLE or FLOAT. With FLOAT the reduced matrices
+	 *            are stored in float, which halves their memory and the memory
+	 *            traffic of the queries. The dot products and norms are always
+	 *            accumulated in double. Default is DOUBLE
+	 */
+	public LSI4J(List<List<String>> documents, int approximationType, double approximationValue,
+			int sortTermsFromDocuments, int precision) {
 		boolean caseSensitive = false;
 
 		// Get and sort terms
 		sortType = sortTermsFromDocuments;
+		this.precision = precision;
 		allTerms = getDifferentTerms(documents, caseSensitive);
 
-		// Get the double matrix and calculate svd
-		queryMatrix = null;
-		documentsMatrix = createDoubleMatrixFromDocuments(allTerms, documents, caseSensitive);
+		// Get the double matrix and calculate svd. Only the reduced matrices are
+		// kept once the model is built
+		double[][] documentsMatrix = createDoubleMatrixFromDocuments(allTerms, documents, caseSensitive);
 		Matrix a = new Matrix(documentsMatrix);
-		svd = a.svd();
+		SingularValueDecomposition svd = a.svd();
 
 		// Calculate the Low K Final Value
 		Matrix s = svd.getS();
 		calculateLowKFinalValue(s, approximationType, approximationValue);
+
+		// Reduce the matrices once instead of for each query
+		reduce(svd);
+	}
+
+	/**
+	 * LSI4J from a decomposition that was already calculated, for example with
+	 * {@link RandomizedSVD} from a {@link SparseMatrixFile} that does not fit in
+	 * memory
+	 * 
+	 * @param terms
+	 *            The terms (rows of the term-document matrix) in lowercase
+	 * @param decomposition
+	 *            The first k singular values and vectors
+	 */
+	public LSI4J(List<String> terms, TruncatedDecomposition decomposition) {
+		this(terms, decomposition, PRECISION_DOUBLE);
+	}
+
+	/**
+	 * LSI4J from a decomposition that was already calculated, for example with
+	 * {@link RandomizedSVD} from a {@link FloatColumns} matrix
+	 * 
+	 * @param terms
+	 *            The terms (rows of the term-document matrix) in lowercase
+	 * @param decomposition
+	 *            The first k singular values and vectors
+	 * @param precision
+	 *            Use constants DOUBLE or FLOAT to store the reduced matrices
+	 */
+	public LSI4J(List<String> terms, TruncatedDecomposition decomposition, int precision) {
+		sortType = SORT_NONE;
+		this.precision = precision;
+		allTerms = new ArrayList<String>(terms);
+		approximationValue = decomposition.getRank();
+		reduce(decomposition.getU(), decomposition.getS(), decomposition.getV());
+	}
+
+	/**
+	 * LSI4J from structured documents. The terms are the n-grams of each field
+	 * and each occurrence counts the weight of its field, see
+	 * {@link TermExpansion}. They are counted directly in the term-document
+	 * matrix. The queries are expanded in the same way, as a document with only
+	 * the default field.
+	 * 
+	 * @param documents
+	 *            The documents
+	 * @param expansion
+	 *            How the fields become terms
+	 * @param approximationType
+	 *            Use constants NONE, K_VALUE or PERCENTAGE
+	 * @param approximationValue
+	 *            Ignored in case of NONE, The K in case of K_VALUE, or a PERCENTAGE
+	 *            where 1.0 = 100%
+	 * @param precision
+	 *            Use constants DOUBLE or FLOAT to store the reduced matrices
+	 */
+	public LSI4J(List<StructuredDocument> documents, TermExpansion expansion, int approximationType,
+			double approximationValue, int precision) {
+		sortType = SORT_NONE;
+		this.precision = precision;
+		this.termExpansion = expansion;
+		allTerms = expansion.getDifferentTerms(documents);
+
+		// One column for each document
+		double[][] documentsMatrix = new double[allTerms.size()][documents.size()];
+		ColumnCounter counter = new ColumnCounter(allTerms);
+		for (int d = 0; d < documents.size(); d++) {
+			int length = counter.count(documents.get(d), expansion);
+			for (int i = 0; i < length; i++) {
+				documentsMatrix[counter.rows()[i]][d] = counter.values()[i];
+			}
+		}
+		SingularValueDecomposition svd = new Matrix(documentsMatrix).svd();
+		calculateLowKFinalValue(svd.getS(), approximationType, approximationValue);
+		reduce(svd);
+	}
+
+	/**
+	 * Rebuild a model from documents that changed a little since a previous
+	 * model. The decomposition starts from the subspace of the previous model,
+	 * see {@link WarmStartSVD}, whose report (iterations and residuals) can be
+	 * read after the model is created. If the previous model has a
+	 * {@link TermExpansion} the documents are expanded with it as documents with
+	 * only the default field, and the new model keeps it.
+	 * 
+	 * @param documents
+	 *            A list of documents where each of them is a list of words
+	 * @param decomposition
+	 *            Created with the previous model
+	 * @param k
+	 *            Number of singular values and vectors to keep
+	 * @param precision
+	 *            Use constants DOUBLE or FLOAT to store the reduced matrices
+	 */
+	public LSI4J(List<List<String>> documents, WarmStartSVD decomposition, int k, int precision)
+			throws IOException {
+		sortType = SORT_NONE;
+		this.precision = precision;
+		LSI4J previous = decomposition.getPrevious();
+		TermExpansion expansion = previous == null ? null : previous.getTermExpansion();
+		if (expansion != null) {
+			decompose(StructuredDocument.ofAll(documents), expansion, decomposition, k);
+			return;
+		}
+		allTerms = SparseMatrixFile.getDifferentTerms(documents);
+		TruncatedDecomposition truncated = decomposition.decompose(FloatColumns.of(allTerms, documents), allTerms,
+				k);
+		approximationValue = truncated.getRank();
+		reduce(truncated.getU(), truncated.getS(), truncated.getV());
+	}
+
+	/**
+	 * Rebuild a model from structured documents that changed a little since a
+	 * previous model, see {@link WarmStartSVD}. The new model keeps the
+	 * expansion for its queries.
+	 * 
+	 * @param documents
+	 *            The documents
+	 * @param expansion
+	 *            How the fields become terms
+	 * @param decomposition
+	 *            Created with the previous model
+	 * @param k
+	 *            Number of singular values and vectors to keep
+	 * @param precision
+	 *            Use constants DOUBLE or FLOAT to store the reduced matrices
+	 */
+	public LSI4J(List<StructuredDocument> documents, TermExpansion expansion, WarmStartSVD decomposition, int k,
+			int precision) throws IOException {
+		sortType = SORT_NONE;
+		this.precision = precision;
+		decompose(documents, expansion, decomposition, k);
+	}
+
+	private void decompose(Iterable<StructuredDocument> documents, TermExpansion expansion,
+			WarmStartSVD decomposition, int k) throws IOException {
+		this.termExpansion = expansion;
+		allTerms = expansion.getDifferentTerms(documents);
+		TruncatedDecomposition truncated = decomposition
+				.decompose(FloatColumns.of(allTerms, documents, expansion), allTerms, k);
+		approximationValue = truncated.getRank();
+		reduce(truncated.getU(), truncated.getS(), truncated.getV());
+	}
+
+	/**
+	 * LSI4J to read a serialized model
+	 */
+	private LSI4J() {
 	}
 
 	public LSI4J(List<List<String>> documents, int approximationType, double approximationValue) {
@@ -100,37 +339,36 @@ public class LSI4J {
 
 		try {
 
-			// A = U*S*(V^T)
-			Matrix u = svd.getU();
-			Matrix s = svd.getS();
-			Matrix v = svd.getV();
+			// Rank in decreasing order of query-document cosine similarities.
+			double q_array[] = foldIn(query);
+			answer = scoreDocuments(q_array, null);
 
-			// Here, rand-reduce The the U and S matrix are sorted by singular value the
-			// highest to the smallest so we just remove the last rows and columns.
-			s = s.getMatrix(0, approximationValue - 1, 0, approximationValue - 1);
-			u = u.getMatrix(0, u.getRowDimension() - 1, 0, approximationValue - 1);
-			v = v.getMatrix(0, v.getRowDimension() - 1, 0, approximationValue - 1);
-			Matrix vkT = v.transpose();
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
 
-			// Find new query vector q=(q^T)*uk*(sk^-1)
-			Matrix q = new Matrix(query, query.length);
-			q = q.transpose();
-			q = q.times(u);
-			q = q.times(s.inverse());
+		return answer;
+	}
 
-			double q_array[] = q.getColumnPackedCopy();
+	/**
+	 * Apply the LSI technique based on a query (weights) and get only the most
+	 * similar documents
+	 * 
+	 * @param query
+	 *            (weights)
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents, the most similar first
+	 */
+	protected List<ScoredDocument> applyLSI(double[] query, int k) {
 
-			// Rank in decreasing order of query-document cosine similarities.
-			answer = new double[vkT.getColumnDimension()];
+		List<ScoredDocument> answer;
 
-			for (int i = 0; i < vkT.getColumnDimension(); i++) {
-				// Get each d matrix from vk
-				Matrix di = vkT.getMatrix(0, vkT.getRowDimension() - 1, i, i);
-				double di_array[] = di.getColumnPackedCopy();
+		try {
 
-				// cosine similarity between di and q
-				answer[i] = cosine(di_array, q_array, true, 4);
-			}
+			double q_array[] = foldIn(query);
+			answer = topDocuments(q_array, k, null);
 
 		} catch (Exception e) {
 			answer = null;
@@ -152,11 +390,301 @@ public class LSI4J {
 
 		try {
 
-			// Create the query
-			queryMatrix = createDoubleQueryFromList(allTerms, query, false);
+			// Fold in only the rows of the terms of the query
+			double q_array[] = foldIn(query);
 
 			// Get the array of similarity
-			answer = applyLSI(queryMatrix);
+			answer = scoreDocuments(q_array, null);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+
+	}
+
+	/**
+	 * Apply LSI for a given query and get only the most similar documents
+	 * 
+	 * @param query
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents, the most similar first
+	 */
+	public List<ScoredDocument> applyLSI(List<String> query, int k) {
+		return applyLSI(query, k, null);
+	}
+
+	/**
+	 * Apply LSI for a batch of queries. Each block of documents is scored
+	 * against all the queries of the batch, which reads the document vectors
+	 * once instead of once per query. The memory needed is one array of
+	 * similarities per query, see {@link ScoreExport} to write many queries to
+	 * a file.
+	 * 
+	 * @param queries
+	 * @return For each query, the list of similarities for each document
+	 */
+	public double[][] applyLSIBatch(List<List<String>> queries) {
+
+		double answer[][];
+
+		try {
+
+			double[][] q_arrays = new double[queries.size()][];
+			for (int n = 0; n < q_arrays.length; n++) {
+				q_arrays[n] = foldIn(queries.get(n));
+			}
+			answer = ScoringScan.scoreAll(scoringPool, documentVectors, q_arrays, scoringBlockSize,
+					removedDocuments);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+	}
+
+	/**
+	 * Apply LSI for a given query only for the documents accepted by a filter.
+	 * The other documents are not scored and their similarity is -1
+	 * 
+	 * @param query
+	 * @param filter
+	 *            For example from {@link #getDocumentAttributes()}
+	 * @return List of similarities of the query for each document
+	 */
+	public double[] applyLSI(List<String> query, DocumentFilter filter) {
+
+		double answer[];
+
+		try {
+
+			double q_array[] = foldIn(query);
+			answer = scoreDocuments(q_array, filter);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+	}
+
+	/**
+	 * Apply LSI for a given query and get only the most similar documents
+	 * accepted by a filter. When the filter accepts few documents only those
+	 * documents are visited.
+	 * 
+	 * @param query
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @param filter
+	 *            For example from {@link #getDocumentAttributes()}. null to
+	 *            accept all the documents
+	 * @return The k most similar documents, the most similar first
+	 */
+	public List<ScoredDocument> applyLSI(List<String> query, int k, DocumentFilter filter) {
+
+		List<ScoredDocument> answer;
+
+		try {
+
+			// Fold in only the rows of the terms of the query
+			double q_array[] = foldIn(query);
+
+			// Get the most similar documents
+			answer = topDocuments(q_array, k, filter);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+
+	}
+
+	/**
+	 * Fold a document (or a query) in the reduced space of the model, i.e.
+	 * (d^T)*uk*(sk^-1). For the documents used to create the model this is their
+	 * row of the reduced V. The terms that are not in the model are ignored.
+	 * 
+	 * @param document
+	 *            List of words
+	 * @return The vector of the document in the reduced space
+	 */
+	public double[] foldIn(List<String> document) {
+		if (termExpansion != null) {
+			return foldIn(document, termExpansion);
+		}
+		int[] ids = new int[document.size()];
+		int length = 0;
+		for (String w : document) {
+			Integer id = termIds.get(w.toLowerCase());
+			if (id != null) {
+				ids[length++] = id;
+			}
+		}
+		return foldIn(ids, null, length);
+	}
+
+	/**
+	 * Fold in the terms of the expanded words, weighted as the default field
+	 */
+	private double[] foldIn(List<String> document, TermExpansion expansion) {
+		final double q_array[] = new double[approximationValue];
+		double weight = expansion.getFieldWeight(StructuredDocument.DEFAULT_FIELD);
+		expansion.expand(document, weight, new TermExpansion.TermVisitor() {
+			@Override
+			public void visit(String term, double weight) {
+				Integer id = termIds.get(term);
+				if (id != null) {
+					uk.addRow(id, weight, q_array);
+				}
+			}
+		});
+		return scaleFoldIn(q_array);
+	}
+
+	/**
+	 * @return A copy of the row of a term in U_k
+	 */
+	double[] getTermVector(int term) {
+		return uk.copyRow(term);
+	}
+
+	/**
+	 * Expand the words of the queries, for a model created from a decomposition
+	 * of a matrix whose terms were expanded, see
+	 * {@link SparseMatrixFile#write(java.nio.file.Path, List, Iterable, TermExpansion)}
+	 * 
+	 * @param expansion
+	 *            How the words become terms or null for the words as they are
+	 */
+	public void setTermExpansion(TermExpansion expansion) {
+		this.termExpansion = expansion;
+	}
+
+	public TermExpansion getTermExpansion() {
+		return termExpansion;
+	}
+
+	/**
+	 * Apply LSI for a sparse query. Only the rows of U_k of the terms of the
+	 * query are used so the query is folded in in O(|query|*k).
+	 * 
+	 * @param termIds
+	 *            Position of the terms in {@link #getTerms()}, see
+	 *            {@link #getTermId(String)}. A term can appear several times
+	 * @param weights
+	 *            The weight of each term
+	 * @return List of similarities of the query for each document
+	 */
+	public double[] applyLSI(int[] termIds, float[] weights) {
+
+		double answer[];
+
+		try {
+
+			double q_array[] = foldIn(termIds, weights, termIds.length);
+			answer = scoreDocuments(q_array, null);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+	}
+
+	/**
+	 * Apply LSI for a sparse query and get only the most similar documents
+	 * 
+	 * @param termIds
+	 *            Position of the terms in {@link #getTerms()}
+	 * @param weights
+	 *            The weight of each term
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents, the most similar first
+	 */
+	public List<ScoredDocument> applyLSI(int[] termIds, float[] weights, int k) {
+		return applyLSI(termIds, weights, k, null);
+	}
+
+	/**
+	 * Apply LSI for a sparse query and get only the most similar documents
+	 * accepted by a filter
+	 * 
+	 * @param termIds
+	 *            Position of the terms in {@link #getTerms()}
+	 * @param weights
+	 *            The weight of each term
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @param filter
+	 *            null to accept all the documents
+	 * @return The k most similar documents, the most similar first
+	 */
+	public List<ScoredDocument> applyLSI(int[] termIds, float[] weights, int k, DocumentFilter filter) {
+
+		List<ScoredDocument> answer;
+
+		try {
+
+			double q_array[] = foldIn(termIds, weights, termIds.length);
+			answer = topDocuments(q_array, k, filter);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+	}
+
+	/**
+	 * Get the position of a term in {@link #getTerms()}
+	 * 
+	 * @param term
+	 *            Case will be ignored
+	 * @return The id of the term or -1 if it is not in the model
+	 */
+	public int getTermId(String term) {
+		Integer id = termIds.get(term.toLowerCase());
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Get the documents that are most similar to a document of the model. The
+	 * documents are compared using their rows of V_k*S_k so no query is folded
+	 * in.
+	 * 
+	 * @param document
+	 *            Index of the document in the list used to create the model
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents (excluding the document itself), the
+	 *         most similar first. Empty if the document was removed
+	 */
+	public List<ScoredDocument> getSimilarDocuments(int document, int k) {
+
+		List<ScoredDocument> answer;
+
+		try {
+
+			answer = new ArrayList<ScoredDocument>();
+			LatentVectors space = getDocumentSpace();
+			int row = space.row(document);
+			if (row != -1 && !removedDocuments.isRemoved(document)) {
+				answer = ScoringScan.topK(scoringPool, space, space.copyRow(row), plusSelf(k), scoringBlockSize, null,
+						removedDocuments, null);
+				removeSelf(answer, document, k);
+			}
 
 		} catch (Exception e) {
 			answer = null;
@@ -164,7 +692,605 @@ public class LSI4J {
 		}
 
 		return answer;
+	}
 
+	/**
+	 * Get all the pairs of documents of the model whose similarity is at least
+	 * the threshold. The documents are compared by blocks in the scoring pool so
+	 * the matrix with all the similarities is never created.
+	 * 
+	 * @param threshold
+	 *            Minimum cosine similarity
+	 * @return The pairs, the most similar first
+	 */
+	public List<SimilarPair> getSimilarDocumentPairs(double threshold) {
+
+		List<SimilarPair> answer;
+
+		try {
+
+			answer = ScoringScan.pairs(scoringPool, getDocumentSpace(), threshold, scoringBlockSize,
+					removedDocuments);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+	}
+
+	/**
+	 * Get the terms that are most related to a term using their rows of U_k*S_k
+	 * 
+	 * @param term
+	 *            Case will be ignored
+	 * @param k
+	 *            Maximum number of terms to return
+	 * @return The k most similar terms (excluding the term itself), the most
+	 *         similar first. Empty if the term is not in the documents
+	 */
+	public List<ScoredTerm> getSimilarTerms(String term, int k) {
+
+		List<ScoredTerm> answer;
+
+		try {
+
+			answer = new ArrayList<ScoredTerm>();
+			int index = getTermId(term);
+			if (index != -1) {
+				LatentVectors space = getTermSpace();
+				List<ScoredDocument> similar = ScoringScan.topK(scoringPool, space, space.copyRow(index), plusSelf(k),
+						scoringBlockSize);
+				removeSelf(similar, index, k);
+				for (ScoredDocument t : similar) {
+					answer.add(new ScoredTerm(allTerms.get(t.getDocument()), t.getSimilarity()));
+				}
+			}
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+	}
+
+	/**
+	 * Get all the pairs of terms whose similarity is at least the threshold
+	 * 
+	 * @param threshold
+	 *            Minimum cosine similarity
+	 * @return The pairs of indexes in {@link #getTerms()}, the most similar first
+	 */
+	public List<SimilarPair> getSimilarTermPairs(double threshold) {
+
+		List<SimilarPair> answer;
+
+		try {
+
+			answer = ScoringScan.pairs(scoringPool, getTermSpace(), threshold, scoringBlockSize, null);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+	}
+
+	/**
+	 * @return The different terms of the documents (the rows of the matrix)
+	 */
+	public List<String> getTerms() {
+		return Collections.unmodifiableList(allTerms);
+	}
+
+	/**
+	 * @return The number of documents of the model
+	 */
+	public int getNumberOfDocuments() {
+		return documentVectors.numberOfDocuments();
+	}
+
+	/**
+	 * @return {@link #PRECISION_DOUBLE} or {@link #PRECISION_FLOAT}, the
+	 *         precision of the reduced matrices
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Approximate number of bytes of the heap used by the model: the reduced
+	 * matrices, the vectors created for the similarities and the terms. The
+	 * terms are measured the first time, then only the vectors are measured
+	 * 
+	 * @return The number of bytes
+	 */
+	public long getResidentBytes() {
+		long bytes = uk.bytes() + documentVectors.bytes() + 16L * approximationValue;
+		synchronized (this) {
+			if (documentSpace != null) {
+				bytes += documentSpace.bytes();
+			}
+			if (termSpace != null) {
+				bytes += termSpace.bytes();
+			}
+		}
+		return bytes + getTermBytes();
+	}
+
+	/**
+	 * The terms do not change so they are measured only once
+	 */
+	private long getTermBytes() {
+		long bytes = termBytes;
+		if (bytes == -1) {
+			bytes = 0;
+			// The term, its entry in the dictionary and its id
+			for (String term : allTerms) {
+				bytes += 40 + 2L * term.length() + 48 + 16;
+			}
+			termBytes = bytes;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Write the model: the terms, the reduced matrices in their precision, the
+	 * removed documents and the expansion of the queries. The document
+	 * attributes, the executors and the listeners are not written.
+	 * 
+	 * @param out
+	 *            The stream. It is flushed but not closed
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		LatentVectors vectors;
+		synchronized (compactionLock) {
+			vectors = documentVectors;
+		}
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(precision);
+		data.writeInt(sortType);
+		data.writeInt(approximationValue);
+		data.writeInt(allTerms.size());
+		for (String term : allTerms) {
+			data.writeUTF(term);
+		}
+		for (int i = 0; i < approximationValue; i++) {
+			data.writeDouble(singularValues[i]);
+			data.writeDouble(skInverse[i]);
+		}
+		uk.write(data);
+		vectors.write(data);
+
+		// Removed documents and the part of the spectrum that was in them. They
+		// are collected first because documents can be removed meanwhile
+		int[] removed = new int[vectors.numberOfDocuments()];
+		int numberOfRemoved = 0;
+		for (int d = 0; d < removed.length; d++) {
+			if (removedDocuments.isRemoved(d)) {
+				removed[numberOfRemoved++] = d;
+			}
+		}
+		data.writeInt(numberOfRemoved);
+		for (int i = 0; i < numberOfRemoved; i++) {
+			data.writeInt(removed[i]);
+		}
+		data.writeDouble(removedMass.sum());
+
+		data.writeBoolean(termExpansion != null);
+		if (termExpansion != null) {
+			termExpansion.write(data);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Read a model written by {@link #writeTo(OutputStream)}. No decomposition
+	 * is calculated, the reduced matrices are read as they were.
+	 * 
+	 * @param in
+	 *            The stream with only the model. It is not closed
+	 * @return The model
+	 */
+	public static LSI4J readFrom(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+			throw new IOException("Not a LSI4J model");
+		}
+		LSI4J lsi = new LSI4J();
+		lsi.precision = data.readInt();
+		lsi.sortType = data.readInt();
+		lsi.approximationValue = data.readInt();
+		int terms = data.readInt();
+		if (lsi.precision != PRECISION_DOUBLE && lsi.precision != PRECISION_FLOAT) {
+			throw new IOException("Unknown precision " + lsi.precision);
+		}
+		if (lsi.approximationValue < 0 || terms < 0) {
+			throw new IOException("Invalid model with k=" + lsi.approximationValue + " and " + terms + " terms");
+		}
+		lsi.allTerms = new ArrayList<String>(terms);
+		lsi.termIds = new HashMap<String, Integer>();
+		for (int i = 0; i < terms; i++) {
+			String term = data.readUTF();
+			lsi.allTerms.add(term);
+			lsi.termIds.put(term, i);
+		}
+		lsi.singularValues = new double[lsi.approximationValue];
+		lsi.skInverse = new double[lsi.approximationValue];
+		for (int i = 0; i < lsi.approximationValue; i++) {
+			lsi.singularValues[i] = data.readDouble();
+			lsi.skInverse[i] = data.readDouble();
+			lsi.totalMass += lsi.singularValues[i] * lsi.singularValues[i];
+		}
+		lsi.uk = Factor.read(data, terms, lsi.approximationValue, lsi.precision);
+		lsi.documentVectors = LatentVectors.read(data, lsi.precision);
+		lsi.scoringBlockSize = ScoringScan.defaultBlockSize(lsi.approximationValue);
+
+		lsi.removedDocuments = new Tombstones(lsi.documentVectors.numberOfDocuments());
+		int removed = data.readInt();
+		for (int i = 0; i < removed; i++) {
+			int document = data.readInt();
+			if (document < 0 || document >= lsi.documentVectors.numberOfDocuments()) {
+				throw new IOException("Unknown removed document " + document);
+			}
+			lsi.removedDocuments.remove(document);
+		}
+		lsi.removedMass.add(data.readDouble());
+
+		if (data.readBoolean()) {
+			lsi.termExpansion = TermExpansion.read(data);
+		}
+		return lsi;
+	}
+
+	/**
+	 * Remove a document from the model. The document is marked as removed and
+	 * the searches skip it. Its vector is dropped from memory by a compaction in
+	 * the background once the ratio of removed documents reaches the compaction
+	 * threshold, see {@link #setCompaction(Executor, double)}
+	 * 
+	 * @param document
+	 *            Index of the document in the list used to create the model
+	 * @return false if it was already removed
+	 */
+	public boolean removeDocument(int document) {
+		if (document < 0 || document >= getNumberOfDocuments()) {
+			throw new IllegalArgumentException("Unknown document " + document);
+		}
+		LatentVectors vectors = documentVectors;
+		if (!removedDocuments.remove(document)) {
+			return false;
+		}
+
+		// Part of the spectrum that was in the removed documents
+		int row = vectors.row(document);
+		if (row != -1) {
+			double mass = 0;
+			double[] v = vectors.copyRow(row);
+			for (int j = 0; j < v.length; j++) {
+				double x = v[j] * singularValues[j];
+				mass += x * x;
+			}
+			removedMass.add(mass);
+		}
+		if (redecompositionListener != null && removedMass.sum() >= redecompositionThreshold * totalMass
+				&& redecompositionNotified.compareAndSet(false, true)) {
+			compactionExecutor.execute(redecompositionListener);
+		}
+
+		// Compact in the background
+		int removedRows = removedRows(vectors);
+		if (removedRows >= compactionThreshold * vectors.size() && compacting.compareAndSet(false, true)) {
+			compactionExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						compact();
+					} finally {
+						compacting.set(false);
+					}
+				}
+			});
+		}
+		return true;
+	}
+
+	/**
+	 * @param document
+	 *            Index of the document in the list used to create the model
+	 * @return true if the document was removed
+	 */
+	public boolean isRemoved(int document) {
+		return removedDocuments.isRemoved(document);
+	}
+
+	/**
+	 * @return The number of removed documents
+	 */
+	public int getNumberOfRemovedDocuments() {
+		return removedDocuments.count();
+	}
+
+	/**
+	 * @return The number of removed documents whose vector is still in memory.
+	 *         They are dropped by the next compaction
+	 */
+	public int getNumberOfRemovedVectors() {
+		return removedRows(documentVectors);
+	}
+
+	private int removedRows(LatentVectors vectors) {
+		return vectors.size() - (vectors.numberOfDocuments() - removedDocuments.count());
+	}
+
+	/**
+	 * Drop the vectors of the removed documents. The searches that are running
+	 * keep using the previous vectors.
+	 */
+	public void compact() {
+		synchronized (compactionLock) {
+			documentVectors = documentVectors.compact(removedDocuments);
+			synchronized (this) {
+				if (documentSpace != null) {
+					documentSpace = documentSpace.compact(removedDocuments);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Configure the background compaction of the removed documents
+	 * 
+	 * @param executor
+	 *            Where the compaction runs. Default is the common pool
+	 * @param threshold
+	 *            Ratio of removed documents (from 0.0 to 1.0) that still have a
+	 *            vector in memory to start a compaction. Default is 0.2
+	 */
+	public void setCompaction(Executor executor, double threshold) {
+		this.compactionExecutor = executor;
+		this.compactionThreshold = threshold;
+	}
+
+	/**
+	 * Be notified when the removed documents are a noticeable part of the
+	 * spectrum, so the model should be decomposed again. The listener runs once
+	 * in the compaction executor.
+	 * 
+	 * @param threshold
+	 *            Ratio of the sum of the squared singular values (from 0.0 to
+	 *            1.0) that was in the removed documents
+	 * @param listener
+	 *            For example to schedule the creation of a new model
+	 */
+	public void setRedecompositionListener(double threshold, Runnable listener) {
+		this.redecompositionThreshold = threshold;
+		this.redecompositionListener = listener;
+		this.redecompositionNotified.set(false);
+	}
+
+	/**
+	 * Get the attributes of the documents to create filters
+	 * 
+	 * @return The attributes, initially without any attribute
+	 */
+	public synchronized DocumentAttributes getDocumentAttributes() {
+		if (documentAttributes == null) {
+			documentAttributes = new DocumentAttributes(getNumberOfDocuments());
+		}
+		return documentAttributes;
+	}
+
+	/**
+	 * Set the attributes of the documents
+	 * 
+	 * @param attributes
+	 *            Created with the number of documents of the model
+	 */
+	public synchronized void setDocumentAttributes(DocumentAttributes attributes) {
+		if (attributes.getNumberOfDocuments() != getNumberOfDocuments()) {
+			throw new IllegalArgumentException("The attributes are not for the documents of this model");
+		}
+		this.documentAttributes = attributes;
+	}
+
+	/**
+	 * Set the pool where the documents are scored. Default is the common pool
+	 * 
+	 * @param pool
+	 */
+	public void setScoringPool(ForkJoinPool pool) {
+		this.scoringPool = pool;
+	}
+
+	/**
+	 * Set the number of documents scored by each task of the pool. By default
+	 * it is calculated so that the vectors of a block fit in the cache
+	 * 
+	 * @param blockSize
+	 */
+	public void setScoringBlockSize(int blockSize) {
+		this.scoringBlockSize = Math.max(1, blockSize);
+	}
+
+	/**
+	 * Keep the k first singular values and vectors. A = U*S*(V^T)
+	 */
+	private void reduce(SingularValueDecomposition svd) {
+		Matrix u = svd.getU();
+		Matrix s = svd.getS();
+		Matrix v = svd.getV();
+
+		// Here, rand-reduce The the U and S matrix are sorted by singular value the
+		// highest to the smallest so we just remove the last rows and columns.
+		s = s.getMatrix(0, approximationValue - 1, 0, approximationValue - 1);
+		u = u.getMatrix(0, u.getRowDimension() - 1, 0, approximationValue - 1);
+		v = v.getMatrix(0, v.getRowDimension() - 1, 0, approximationValue - 1);
+		reduce(u, s, v);
+	}
+
+	/**
+	 * Keep a copy of the reduced matrices as flat arrays so the Jama matrices
+	 * can be released
+	 */
+	private void reduce(Matrix u, Matrix s, Matrix v) {
+		uk = Factor.of(u.getArray(), precision);
+		Matrix inverse = s.inverse();
+		skInverse = new double[approximationValue];
+		singularValues = new double[approximationValue];
+		for (int i = 0; i < approximationValue; i++) {
+			skInverse[i] = inverse.get(i, i);
+			singularValues[i] = s.get(i, i);
+		}
+
+		termIds = new HashMap<String, Integer>();
+		for (int i = 0; i < allTerms.size(); i++) {
+			termIds.put(allTerms.get(i), i);
+		}
+
+		// Each row of V_k is a document
+		documentVectors = new LatentVectors(v.getArray(), COSINE_SCALE, precision);
+		scoringBlockSize = ScoringScan.defaultBlockSize(approximationValue);
+
+		removedDocuments = new Tombstones(documentVectors.size());
+		for (double singularValue : singularValues) {
+			totalMass += singularValue * singularValue;
+		}
+	}
+
+	private double[] scoreDocuments(double[] q, DocumentFilter filter) {
+		return ScoringScan.scoreAll(scoringPool, documentVectors, q, scoringBlockSize, filter, removedDocuments,
+				null);
+	}
+
+	private List<ScoredDocument> topDocuments(double[] q, int k, DocumentFilter filter) {
+		return ScoringScan.topK(scoringPool, documentVectors, q, k, scoringBlockSize, filter, removedDocuments,
+				null);
+	}
+
+	/**
+	 * Apply LSI for a given query that can be stopped between blocks of
+	 * documents. The exceptions are not caught.
+	 * 
+	 * @throws java.util.concurrent.CancellationException
+	 *             If the query was cancelled or its deadline was exceeded
+	 */
+	double[] applyLSI(List<String> query, DocumentFilter filter, ScanControl control) {
+		return ScoringScan.scoreAll(scoringPool, documentVectors, foldIn(query), scoringBlockSize, filter,
+				removedDocuments, control);
+	}
+
+	/**
+	 * Apply LSI for a given query that can be stopped between blocks of
+	 * documents and get only the most similar documents. The exceptions are not
+	 * caught.
+	 * 
+	 * @throws java.util.concurrent.CancellationException
+	 *             If the query was cancelled or its deadline was exceeded
+	 */
+	List<ScoredDocument> applyLSI(List<String> query, int k, DocumentFilter filter, ScanControl control) {
+		return ScoringScan.topK(scoringPool, documentVectors, foldIn(query), k, scoringBlockSize, filter,
+				removedDocuments, control);
+	}
+
+	private synchronized LatentVectors getDocumentSpace() {
+		if (documentSpace == null) {
+			// From the rows of V_k that the queries are scored against
+			documentSpace = documentVectors.scaled(singularValues, COSINE_SCALE, precision);
+		}
+		return documentSpace;
+	}
+
+	private synchronized LatentVectors getTermSpace() {
+		if (termSpace == null) {
+			termSpace = LatentVectors.scaled(uk, singularValues, COSINE_SCALE, precision);
+		}
+		return termSpace;
+	}
+
+	/**
+	 * k+1 to find k besides the document (or term) itself, without overflow
+	 */
+	private static int plusSelf(int k) {
+		return k == Integer.MAX_VALUE ? k : k + 1;
+	}
+
+	/**
+	 * Remove a document (or term) from a top k+1 and keep only k
+	 */
+	private static void removeSelf(List<ScoredDocument> top, int document, int k) {
+		for (int i = 0; i < top.size(); i++) {
+			if (top.get(i).getDocument() == document) {
+				top.remove(i);
+				break;
+			}
+		}
+		while (top.size() > k) {
+			top.remove(top.size() - 1);
+		}
+	}
+
+	/**
+	 * Find new query vector q=(q^T)*uk*(sk^-1)
+	 * 
+	 * @param query
+	 *            (weights)
+	 * @return The query in the reduced space
+	 */
+	private double[] foldIn(double[] query) {
+		if (query.length != uk.size()) {
+			throw new IllegalArgumentException("One weight is needed for each term");
+		}
+		// Only the rows of the terms in the query count
+		double q_array[] = new double[approximationValue];
+		for (int i = 0; i < query.length; i++) {
+			if (query[i] != 0) {
+				uk.addRow(i, query[i], q_array);
+			}
+		}
+		return scaleFoldIn(q_array);
+	}
+
+	/**
+	 * Find new query vector q=(q^T)*uk*(sk^-1) for a sparse query, using only
+	 * the rows of uk of its terms
+	 * 
+	 * @param ids
+	 *            The terms of the query
+	 * @param weights
+	 *            The weight of each term or null if all of them are 1
+	 * @param length
+	 *            Number of terms to take from the arrays
+	 * @return The query in the reduced space
+	 */
+	private double[] foldIn(int[] ids, float[] weights, int length) {
+		if (weights != null && weights.length < length) {
+			throw new IllegalArgumentException("One weight is needed for each term");
+		}
+		double q_array[] = new double[approximationValue];
+		for (int n = 0; n < length; n++) {
+			if (ids[n] < 0 || ids[n] >= uk.size()) {
+				throw new IllegalArgumentException("Unknown term id " + ids[n]);
+			}
+			uk.addRow(ids[n], weights == null ? 1 : weights[n], q_array);
+		}
+		return scaleFoldIn(q_array);
+	}
+
+	/**
+	 * Last step of the fold in, the sum of the rows of uk times (sk^-1)
+	 */
+	private double[] scaleFoldIn(double[] q_array) {
+		for (int j = 0; j < q_array.length; j++) {
+			q_array[j] *= skInverse[j];
+		}
+		LatentVectors.roundSmallNegatives(q_array, COSINE_SCALE);
+		return q_array;
 	}
 
 	/**
@@ -0,0 +1,147 @@
+package lsi4j;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Serves the queries from the current version of a model while a new version
+ * is created in another executor. Publishing a new version is atomic: new
+ * queries use it and the queries that are running finish with the previous
+ * one, which is released when the last of them finishes.
+ * 
+ * @author Jabier Martinez
+ */
+public class LSIModelHolder {
+
+	private final AtomicReference<ModelVersion> current = new AtomicReference<ModelVersion>();
+	private long versions;
+	private final Executor buildExecutor;
+
+	/**
+	 * LSIModelHolder
+	 * 
+	 * @param model
+	 *            The first version of the model
+	 * @param buildExecutor
+	 *            Where the new versions are created
+	 */
+	public LSIModelHolder(LSI4J model, Executor buildExecutor) {
+		this.buildExecutor = buildExecutor;
+		publish(model);
+	}
+
+	/**
+	 * Get the current version. It must be closed after using it
+	 * 
+	 * @return The snapshot with the current model
+	 */
+	public ModelSnapshot acquire() {
+		while (true) {
+			ModelVersion version = current.get();
+			if (version.retain()) {
+				return new ModelSnapshot(version);
+			}
+			// it was replaced and retired in between, take the new one
+		}
+	}
+
+	/**
+	 * Apply LSI for a given query with the current version
+	 * 
+	 * @param query
+	 * @return List of similarities of the query for each document and the version
+	 *         of the model
+	 */
+	public VersionedResult<double[]> applyLSI(List<String> query) {
+		ModelSnapshot snapshot = acquire();
+		try {
+			return new VersionedResult<double[]>(snapshot.getModel().applyLSI(query), snapshot.getVersion());
+		} finally {
+			snapshot.close();
+		}
+	}
+
+	/**
+	 * Apply LSI for a given query with the current version and get only the most
+	 * similar documents
+	 * 
+	 * @param query
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents and the version of the model
+	 */
+	public VersionedResult<List<ScoredDocument>> applyLSI(List<String> query, int k) {
+		ModelSnapshot snapshot = acquire();
+		try {
+			return new VersionedResult<List<ScoredDocument>>(snapshot.getModel().applyLSI(query, k),
+					snapshot.getVersion());
+		} finally {
+			snapshot.close();
+		}
+	}
+
+	/**
+	 * Publish a new version of the model
+	 * 
+	 * @param model
+	 * @return The version of the model
+	 */
+	public synchronized long publish(LSI4J model) {
+		// Synchronized so the current version is always the last one published
+		ModelVersion version = new ModelVersion(model, ++versions);
+		ModelVersion previous = current.getAndSet(version);
+		if (previous != null) {
+			// The queries that are using it keep their own references
+			previous.release();
+		}
+		return version.getVersion();
+	}
+
+	/**
+	 * Create a new version of the model in the build executor and publish it when
+	 * it is ready. The queries keep using the current version meanwhile.
+	 * 
+	 * @param documents
+	 *            See {@link LSI4J#LSI4J(List, int, double, int)}
+	 * @param approximationType
+	 * @param approximationValue
+	 * @return The version of the new model when it is published
+	 */
+	public CompletableFuture<Long> rebuild(final List<List<String>> documents, final int approximationType,
+			final double approximationValue) {
+		return rebuild(new Supplier<LSI4J>() {
+			@Override
+			public LSI4J get() {
+				return new LSI4J(documents, approximationType, approximationValue);
+			}
+		});
+	}
+
+	/**
+	 * Create a new version of the model in the build executor and publish it when
+	 * it is ready
+	 * 
+	 * @param builder
+	 *            Creates the model
+	 * @return The version of the new model when it is published
+	 */
+	public CompletableFuture<Long> rebuild(final Supplier<LSI4J> builder) {
+		return CompletableFuture.supplyAsync(new Supplier<Long>() {
+			@Override
+			public Long get() {
+				return publish(builder.get());
+			}
+		}, buildExecutor);
+	}
+
+	/**
+	 * @return The current version
+	 */
+	public long getVersion() {
+		return current.get().getVersion();
+	}
+
+}
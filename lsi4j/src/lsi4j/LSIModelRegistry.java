@@ -0,0 +1,314 @@
+package lsi4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Many models, for example one per project, that are only in memory while they
+ * are used. Each model is registered in its serialized form (see
+ * {@link LSI4J#writeTo(java.io.OutputStream)}), in a byte array or in a file,
+ * and it is read the first time it is queried. The models that were read stay
+ * in memory until the sum of their resident bytes exceeds the memory budget,
+ * then the least recently used ones are released. The queries that are using
+ * a released model finish with it.
+ * 
+ * @author Jabier Martinez
+ */
+public class LSIModelRegistry {
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	// The models in memory from the least to the most recently used
+	private final LinkedHashMap<String, Entry> resident = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long residentBytes;
+	private long memoryBudget;
+
+	// Number of models read and released
+	private long loads;
+	private long evictions;
+
+	/**
+	 * LSIModelRegistry
+	 * 
+	 * @param memoryBudget
+	 *            Maximum number of bytes of the models in memory, see
+	 *            {@link LSI4J#getResidentBytes()}. The model that is being
+	 *            queried stays in memory even if it is bigger
+	 */
+	public LSIModelRegistry(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * A model in its serialized form and the model if it is in memory
+	 */
+	private static class Entry {
+
+		final String name;
+		final byte[] serialized;
+		final Path file;
+
+		volatile LSI4J model;
+		long bytes;
+
+		Entry(String name, byte[] serialized, Path file) {
+			this.name = name;
+			this.serialized = serialized;
+			this.file = file;
+		}
+
+		LSI4J read() throws IOException {
+			InputStream in = serialized != null ? new ByteArrayInputStream(serialized) : Files.newInputStream(file);
+			try {
+				return LSI4J.readFrom(in);
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Register a model. It is serialized and only the serialized form is kept
+	 * until it is queried
+	 * 
+	 * @param name
+	 *            Name of the model. It replaces a model with the same name
+	 * @param model
+	 */
+	public void register(String name, LSI4J model) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		model.writeTo(out);
+		put(new Entry(name, out.toByteArray(), null));
+	}
+
+	/**
+	 * Register a model that was written to a file. The file is read when the
+	 * model is queried
+	 * 
+	 * @param name
+	 *            Name of the model. It replaces a model with the same name
+	 * @param file
+	 *            Written with {@link LSI4J#writeTo(java.io.OutputStream)}
+	 */
+	public void register(String name, Path file) {
+		put(new Entry(name, null, file));
+	}
+
+	private void put(Entry entry) {
+		Entry previous = entries.put(entry.name, entry);
+		if (previous != null) {
+			release(previous);
+		}
+	}
+
+	/**
+	 * Remove a model from the registry
+	 * 
+	 * @param name
+	 * @return false if there was no model with this name
+	 */
+	public boolean unregister(String name) {
+		Entry entry = entries.remove(name);
+		if (entry == null) {
+			return false;
+		}
+		release(entry);
+		return true;
+	}
+
+	private synchronized void release(Entry entry) {
+		if (resident.get(entry.name) == entry) {
+			resident.remove(entry.name);
+			residentBytes -= entry.bytes;
+		}
+		entry.model = null;
+	}
+
+	/**
+	 * Get a model, reading it if it is not in memory
+	 * 
+	 * @param name
+	 *            Name of the model
+	 * @return The model
+	 */
+	public LSI4J getModel(String name) throws IOException {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			throw new IllegalArgumentException("Unknown model " + name);
+		}
+		LSI4J model = entry.model;
+		if (model != null) {
+			touch(entry);
+			return model;
+		}
+		// Only one thread reads each model, the others wait for it
+		synchronized (entry) {
+			model = entry.model;
+			if (model == null) {
+				model = entry.read();
+				// Measure the terms of the new model out of the lock of the registry
+				model.getResidentBytes();
+				admit(entry, model);
+			} else {
+				touch(entry);
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * Mark a model as the most recently used
+	 */
+	private synchronized void touch(Entry entry) {
+		resident.get(entry.name);
+	}
+
+	/**
+	 * Keep a model that was read and release the least recently used models
+	 * until the budget is respected
+	 */
+	private synchronized void admit(Entry entry, LSI4J model) {
+		if (entries.get(entry.name) != entry) {
+			// Unregistered or replaced while it was read, serve it without keeping it
+			return;
+		}
+		entry.model = model;
+		entry.bytes = model.getResidentBytes();
+		resident.put(entry.name, entry);
+		loads++;
+
+		// The models grow when some similarities are used so measure them again,
+		// their terms were measured when they were read
+		residentBytes = 0;
+		for (Entry e : resident.values()) {
+			e.bytes = e.model.getResidentBytes();
+			residentBytes += e.bytes;
+		}
+		Iterator<Entry> iterator = resident.values().iterator();
+		while (residentBytes > memoryBudget && iterator.hasNext()) {
+			Entry e = iterator.next();
+			if (e != entry) {
+				iterator.remove();
+				residentBytes -= e.bytes;
+				e.model = null;
+				evictions++;
+			}
+		}
+	}
+
+	/**
+	 * Apply LSI for a given query with a model
+	 * 
+	 * @param name
+	 *            Name of the model
+	 * @param query
+	 * @return List of similarities of the query for each document
+	 */
+	public double[] applyLSI(String name, List<String> query) throws IOException {
+		return getModel(name).applyLSI(query);
+	}
+
+	/**
+	 * Apply LSI for a given query with a model and get only the most similar
+	 * documents
+	 * 
+	 * @param name
+	 *            Name of the model
+	 * @param query
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents
+	 */
+	public List<ScoredDocument> applyLSI(String name, List<String> query, int k) throws IOException {
+		return getModel(name).applyLSI(query, k);
+	}
+
+	/**
+	 * @param name
+	 *            Name of the model
+	 * @return true if the model is in memory
+	 */
+	public boolean isResident(String name) {
+		Entry entry = entries.get(name);
+		return entry != null && entry.model != null;
+	}
+
+	/**
+	 * @param name
+	 *            Name of the model
+	 * @return The bytes of the model in memory or 0 if it is only serialized
+	 */
+	public long getResidentBytes(String name) {
+		Entry entry = entries.get(name);
+		LSI4J model = entry == null ? null : entry.model;
+		return model == null ? 0 : model.getResidentBytes();
+	}
+
+	/**
+	 * @return The bytes of the models in memory when they were last measured
+	 */
+	public synchronized long getResidentBytes() {
+		return residentBytes;
+	}
+
+	/**
+	 * @param name
+	 *            Name of the model
+	 * @return The bytes of the serialized model kept in memory, 0 if it is in
+	 *         a file
+	 */
+	public long getSerializedBytes(String name) {
+		Entry entry = entries.get(name);
+		return entry == null || entry.serialized == null ? 0 : entry.serialized.length;
+	}
+
+	/**
+	 * @return The names of the models in memory from the least to the most
+	 *         recently used
+	 */
+	public synchronized List<String> getResidentModels() {
+		return new ArrayList<String>(resident.keySet());
+	}
+
+	/**
+	 * @return The number of registered models
+	 */
+	public int getNumberOfModels() {
+		return entries.size();
+	}
+
+	/**
+	 * Change the memory budget. It is applied when the next model is read
+	 * 
+	 * @param bytes
+	 */
+	public synchronized void setMemoryBudget(long bytes) {
+		this.memoryBudget = bytes;
+	}
+
+	/**
+	 * @return The number of times that a model was read
+	 */
+	public synchronized long getLoads() {
+		return loads;
+	}
+
+	/**
+	 * @return The number of times that a model was released to respect the
+	 *         budget
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+}
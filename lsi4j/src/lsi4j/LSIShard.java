@@ -0,0 +1,96 @@
+package lsi4j;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A part of the documents of a sharded model. The shard only keeps the vectors
+ * of its documents in the reduced space of the model, so it can be rebuilt
+ * without the rest of the documents and scored in its own pool.
+ * 
+ * @author Jabier Martinez
+ */
+public class LSIShard {
+
+	// Global index of each document of the shard
+	private final int[] documentIds;
+
+	private final LatentVectors documentVectors;
+
+	private final ForkJoinPool pool;
+	private final int blockSize;
+
+	/**
+	 * LSIShard
+	 * 
+	 * @param documentIds
+	 *            The global index of each document
+	 * @param documentVectors
+	 *            The documents folded in the model, see
+	 *            {@link LSI4J#foldIn(List)}
+	 * @param pool
+	 *            Where the documents of this shard are scored
+	 */
+	public LSIShard(int[] documentIds, double[][] documentVectors, ForkJoinPool pool) {
+		this(documentIds, documentVectors, pool, LSI4J.PRECISION_DOUBLE);
+	}
+
+	/**
+	 * LSIShard
+	 * 
+	 * @param documentIds
+	 *            The global index of each document
+	 * @param documentVectors
+	 *            The documents folded in the model, see
+	 *            {@link LSI4J#foldIn(List)}
+	 * @param pool
+	 *            Where the documents of this shard are scored
+	 * @param precision
+	 *            Use constants DOUBLE or FLOAT of {@link LSI4J} to store the
+	 *            vectors, usually the precision of the model
+	 */
+	public LSIShard(int[] documentIds, double[][] documentVectors, ForkJoinPool pool, int precision) {
+		if (documentIds.length != documentVectors.length) {
+			throw new IllegalArgumentException("One id is needed for each document");
+		}
+		this.documentIds = documentIds.clone();
+		this.documentVectors = new LatentVectors(documentVectors, LSI4J.COSINE_SCALE, precision);
+		this.pool = pool;
+		this.blockSize = ScoringScan.defaultBlockSize(this.documentVectors.dimension());
+	}
+
+	/**
+	 * Get the most similar documents of this shard
+	 * 
+	 * @param q
+	 *            The query folded in the model
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents with their global index, the most
+	 *         similar first
+	 */
+	public List<ScoredDocument> applyLSI(double[] q, int k) {
+		List<ScoredDocument> local = ScoringScan.topK(pool, documentVectors, q, k, blockSize);
+		for (int i = 0; i < local.size(); i++) {
+			ScoredDocument d = local.get(i);
+			local.set(i, new ScoredDocument(documentIds[d.getDocument()], d.getSimilarity()));
+		}
+		return local;
+	}
+
+	/**
+	 * @return The number of documents in this shard
+	 */
+	public int size() {
+		return documentIds.length;
+	}
+
+	/**
+	 * @return The approximate number of bytes of the heap used by the vectors
+	 *         and the ids of the documents
+	 */
+	public long getResidentBytes() {
+		return documentVectors.bytes() + 4L * documentIds.length;
+	}
+
+}
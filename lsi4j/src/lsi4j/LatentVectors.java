@@ -0,0 +1,287 @@
+package lsi4j;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Rows of a reduced factor (one k-length vector per document) prepared for
+ * cosine scoring. The norms are computed once so scoring a row against a query
+ * is just a dot product. The rows can be stored in float, the dot products and
+ * norms are still accumulated in double.
+ * 
+ * @author Jabier Martinez
+ */
+final class LatentVectors {
+
+	private final Factor rows;
+	private final double[] norms;
+
+	// Document of each row in increasing order or null if row i is document i
+	private final int[] ids;
+
+	// Number of documents including the ones without a row
+	private final int documents;
+
+	/**
+	 * @param rows
+	 *            One vector per document. Values are rounded as in
+	 *            {@link LSI4J#cosine(double[], double[], boolean, int)}
+	 * @param scale
+	 *            The scale used to round small negative values to zero
+	 */
+	LatentVectors(double[][] rows, int scale) {
+		this(rows, scale, LSI4J.PRECISION_DOUBLE);
+	}
+
+	/**
+	 * @param rows
+	 *            One vector per document. They are copied and the values are
+	 *            rounded as in
+	 *            {@link LSI4J#cosine(double[], double[], boolean, int)}
+	 * @param scale
+	 *            The scale used to round small negative values to zero
+	 * @param precision
+	 *            {@link LSI4J#PRECISION_DOUBLE} or {@link LSI4J#PRECISION_FLOAT}
+	 */
+	LatentVectors(double[][] rows, int scale, int precision) {
+		int dimension = rows.length == 0 ? 0 : rows[0].length;
+		double[] values = new double[Factor.length(rows.length, dimension)];
+		for (int i = 0; i < rows.length; i++) {
+			System.arraycopy(rows[i], 0, values, i * dimension, dimension);
+		}
+		roundSmallNegatives(values, scale);
+		this.rows = Factor.of(values, rows.length, dimension, precision);
+		this.norms = norms(this.rows);
+		this.ids = null;
+		this.documents = rows.length;
+	}
+
+	private LatentVectors(Factor rows, double[] norms, int[] ids, int documents) {
+		this.rows = rows;
+		this.norms = norms;
+		this.ids = ids;
+		this.documents = documents;
+	}
+
+	/**
+	 * Copy without the rows of the removed documents
+	 */
+	LatentVectors compact(Tombstones removed) {
+		int[] kept = new int[rows.size()];
+		double[] newNorms = new double[rows.size()];
+		int[] newIds = new int[rows.size()];
+		int live = 0;
+		for (int r = 0; r < rows.size(); r++) {
+			if (!removed.isRemoved(id(r))) {
+				kept[live] = r;
+				newNorms[live] = norms[r];
+				newIds[live] = id(r);
+				live++;
+			}
+		}
+		return new LatentVectors(rows.select(Arrays.copyOf(kept, live)), Arrays.copyOf(newNorms, live),
+				Arrays.copyOf(newIds, live), documents);
+	}
+
+	/**
+	 * @return The number of rows
+	 */
+	int size() {
+		return rows.size();
+	}
+
+	/**
+	 * @return The number of documents, including the ones whose row was removed
+	 */
+	int numberOfDocuments() {
+		return documents;
+	}
+
+	/**
+	 * @return The document of a row
+	 */
+	int id(int row) {
+		return ids == null ? row : ids[row];
+	}
+
+	/**
+	 * @return The row of a document or -1 if it was removed
+	 */
+	int row(int id) {
+		if (ids == null) {
+			return id < rows.size() ? id : -1;
+		}
+		int row = Arrays.binarySearch(ids, id);
+		return row < 0 ? -1 : row;
+	}
+
+	int dimension() {
+		return rows.dimension();
+	}
+
+	/**
+	 * Cosine similarity between a row and a query that was already rounded
+	 * 
+	 * @param i
+	 *            The row
+	 * @param q
+	 *            The query vector
+	 * @param qNorm
+	 *            The norm of the query vector
+	 * @return The cosine or -1 if it is not defined
+	 */
+	double cosine(int i, double[] q, double qNorm) {
+		return cosine(rows.dot(i, q), qNorm * norms[i]);
+	}
+
+	/**
+	 * Cosine similarity between two rows
+	 */
+	double cosine(int i, int j) {
+		return cosine(rows.dot(i, j), norms[i] * norms[j]);
+	}
+
+	private static double cosine(double scalaire, double norms) {
+		double val = scalaire / norms;
+		// The norm of a row with tiny values can underflow to zero
+		if (Double.isNaN(val) || Double.isInfinite(val)) {
+			val = -1;
+		}
+		return val;
+	}
+
+	/**
+	 * @return A copy of the row
+	 */
+	double[] copyRow(int i) {
+		return rows.copyRow(i);
+	}
+
+	/**
+	 * Squared norm of a row
+	 */
+	double squaredNorm(int i) {
+		return norms[i] * norms[i];
+	}
+
+	/**
+	 * Rows of a factor scaled by the singular values, e.g. U_k*S_k
+	 * 
+	 * @param factor
+	 *            The reduced U or V
+	 * @param singularValues
+	 *            The first k singular values
+	 */
+	static LatentVectors scaled(Factor factor, double[] singularValues, int scale, int precision) {
+		Factor rows = scale(factor, singularValues, scale, precision);
+		return new LatentVectors(rows, norms(rows), null, factor.size());
+	}
+
+	/**
+	 * These rows scaled by the singular values for the same documents, e.g.
+	 * V_k*S_k from the rows of V_k
+	 * 
+	 * @param singularValues
+	 *            The first k singular values
+	 */
+	LatentVectors scaled(double[] singularValues, int scale, int precision) {
+		Factor scaledRows = scale(rows, singularValues, scale, precision);
+		return new LatentVectors(scaledRows, norms(scaledRows), ids, documents);
+	}
+
+	private static Factor scale(Factor factor, double[] singularValues, int scale, int precision) {
+		int dimension = singularValues.length;
+		double[] values = new double[Factor.length(factor.size(), dimension)];
+		for (int i = 0; i < factor.size(); i++) {
+			for (int j = 0; j < dimension; j++) {
+				values[i * dimension + j] = factor.get(i, j) * singularValues[j];
+			}
+		}
+		roundSmallNegatives(values, scale);
+		return Factor.of(values, factor.size(), dimension, precision);
+	}
+
+	/**
+	 * The norm of each stored row
+	 */
+	private static double[] norms(Factor rows) {
+		double[] norms = new double[rows.size()];
+		for (int i = 0; i < norms.length; i++) {
+			norms[i] = Math.sqrt(rows.dot(i, i));
+		}
+		return norms;
+	}
+
+	/**
+	 * @return The approximate number of bytes of the rows, norms and ids
+	 */
+	long bytes() {
+		return rows.bytes() + 8L * norms.length + (ids == null ? 0 : 4L * ids.length);
+	}
+
+	/**
+	 * Write the documents, the rows and their ids. The norms are calculated again
+	 * when they are read
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeInt(documents);
+		out.writeInt(rows.size());
+		out.writeInt(rows.dimension());
+		out.writeBoolean(ids != null);
+		if (ids != null) {
+			for (int id : ids) {
+				out.writeInt(id);
+			}
+		}
+		rows.write(out);
+	}
+
+	/**
+	 * Read the vectors written by {@link #write(DataOutput)}
+	 * 
+	 * @param precision
+	 *            The precision of the rows that were written
+	 */
+	static LatentVectors read(DataInput in, int precision) throws IOException {
+		int documents = in.readInt();
+		int size = in.readInt();
+		int dimension = in.readInt();
+		if (documents < 0 || size < 0 || size > documents || dimension < 0) {
+			throw new IOException("Invalid vectors of " + size + " documents and " + dimension + " dimensions");
+		}
+		int[] ids = null;
+		if (in.readBoolean()) {
+			ids = new int[size];
+			for (int i = 0; i < size; i++) {
+				ids[i] = in.readInt();
+			}
+		}
+		Factor rows = Factor.read(in, size, dimension, precision);
+		return new LatentVectors(rows, norms(rows), ids, documents);
+	}
+
+	/**
+	 * Round to zero the negative values that are greater than -1/10^scale
+	 */
+	static void roundSmallNegatives(double[] v, int scale) {
+		if (scale <= 0)
+			scale = 1;
+		double smallestNumberAllowed = -1 / Math.pow(10, scale);
+		for (int i = 0; i < v.length; i++) {
+			if (v[i] < 0 && v[i] >= smallestNumberAllowed) {
+				v[i] = 0;
+			}
+		}
+	}
+
+	static double norm(double[] v) {
+		double n = 0.0;
+		for (int i = 0; i < v.length; i++) {
+			n += v[i] * v[i];
+		}
+		return Math.sqrt(n);
+	}
+
+}
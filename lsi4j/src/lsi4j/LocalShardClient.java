@@ -0,0 +1,41 @@
+package lsi4j;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * A shard in the same process that is queried in its own executor
+ * 
+ * @author Jabier Martinez
+ */
+public class LocalShardClient implements ShardClient {
+
+	private final LSIShard shard;
+	private final Executor executor;
+
+	/**
+	 * LocalShardClient
+	 * 
+	 * @param shard
+	 *            The shard
+	 * @param executor
+	 *            Where the queries to the shard are executed
+	 */
+	public LocalShardClient(LSIShard shard, Executor executor) {
+		this.shard = shard;
+		this.executor = executor;
+	}
+
+	@Override
+	public CompletableFuture<List<ScoredDocument>> applyLSI(final double[] q, final int k) {
+		return CompletableFuture.supplyAsync(new Supplier<List<ScoredDocument>>() {
+			@Override
+			public List<ScoredDocument> get() {
+				return shard.applyLSI(q, k);
+			}
+		}, executor);
+	}
+
+}
@@ -0,0 +1,52 @@
+package lsi4j;
+
+import Jama.Matrix;
+
+/**
+ * The non zero values of an in memory matrix read column by column
+ * 
+ * @author Jabier Martinez
+ */
+public class MatrixColumns implements ColumnSource {
+
+	private final double[][] a;
+	private final int rows;
+	private final int columns;
+
+	/**
+	 * @param a
+	 *            The matrix, it is not copied
+	 */
+	public MatrixColumns(Matrix a) {
+		this.a = a.getArray();
+		this.rows = a.getRowDimension();
+		this.columns = a.getColumnDimension();
+	}
+
+	@Override
+	public int getRowDimension() {
+		return rows;
+	}
+
+	@Override
+	public int getColumnDimension() {
+		return columns;
+	}
+
+	@Override
+	public void forEachColumn(ColumnVisitor visitor) {
+		int[] rowIndexes = new int[rows];
+		double[] values = new double[rows];
+		for (int j = 0; j < columns; j++) {
+			int length = 0;
+			for (int i = 0; i < rows; i++) {
+				if (a[i][j] != 0) {
+					rowIndexes[length] = i;
+					values[length++] = a[i][j];
+				}
+			}
+			visitor.visit(j, rowIndexes, values, length);
+		}
+	}
+
+}
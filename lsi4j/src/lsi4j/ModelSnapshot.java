@@ -0,0 +1,59 @@
+package lsi4j;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A version of a model published in a {@link LSIModelHolder}, taken by one
+ * query. The version counts its snapshots so a replaced model is only released
+ * when the last of them is closed. Closing a snapshot several times releases
+ * it only once. Use it with try-with-resources:
+ * 
+ * <pre>
+ * try (ModelSnapshot snapshot = holder.acquire()) {
+ * 	snapshot.getModel().applyLSI(query);
+ * }
+ * </pre>
+ * 
+ * @author Jabier Martinez
+ */
+public class ModelSnapshot implements AutoCloseable {
+
+	private final ModelVersion version;
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	ModelSnapshot(ModelVersion version) {
+		this.version = version;
+	}
+
+	/**
+	 * @return The model. null if the snapshot was already retired
+	 */
+	public LSI4J getModel() {
+		return version.getModel();
+	}
+
+	/**
+	 * @return The version of the model in the holder
+	 */
+	public long getVersion() {
+		return version.getVersion();
+	}
+
+	/**
+	 * @return true if the snapshot was replaced and nobody is using it anymore
+	 */
+	public boolean isRetired() {
+		return version.isRetired();
+	}
+
+	/**
+	 * Release the reference of this snapshot, only the first time
+	 */
+	@Override
+	public void close() {
+		if (closed.compareAndSet(false, true)) {
+			version.release();
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package lsi4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A version of a model published in a {@link LSIModelHolder}. It counts the
+ * snapshots that use it so a replaced model is only released when the last of
+ * them is closed.
+ * 
+ * @author Jabier Martinez
+ */
+final class ModelVersion {
+
+	private volatile LSI4J model;
+	private final long version;
+
+	// The holder keeps one reference while the version is the current one
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	ModelVersion(LSI4J model, long version) {
+		this.model = model;
+		this.version = version;
+	}
+
+	/**
+	 * @return The model. null if the version was already retired
+	 */
+	LSI4J getModel() {
+		return model;
+	}
+
+	long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return true if the version was replaced and nobody is using it anymore
+	 */
+	boolean isRetired() {
+		return references.get() == 0;
+	}
+
+	/**
+	 * Take a reference unless the version is already retired
+	 */
+	boolean retain() {
+		while (true) {
+			int current = references.get();
+			if (current == 0) {
+				return false;
+			}
+			if (references.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Release a reference. The model is dropped with the last one
+	 */
+	void release() {
+		if (references.decrementAndGet() == 0) {
+			model = null;
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+package lsi4j;
+
+import java.io.IOException;
+import java.util.Random;
+
+import Jama.Matrix;
+import Jama.SingularValueDecomposition;
+
+/**
+ * Randomized truncated SVD (Halko, Martinsson and Tropp, "Finding structure
+ * with randomness", 2011) that only reads the matrix column by column. It makes
+ * 2 + 2*powerIterations passes over the matrix and its memory is O((T+D)*l)
+ * with l = k + oversampling, whatever the number of non zero values.
+ * 
+ * @author Jabier Martinez
+ */
+public class RandomizedSVD implements DecompositionStrategy {
+
+	private int oversampling = 10;
+	private int powerIterations = 2;
+	private long seed = 0;
+
+	/**
+	 * Extra random vectors used to find the range of the matrix. Default is 10
+	 */
+	public RandomizedSVD setOversampling(int oversampling) {
+		this.oversampling = Math.max(0, oversampling);
+		return this;
+	}
+
+	/**
+	 * Number of power iterations to improve the accuracy when the singular values
+	 * decay slowly. Each one is two passes over the matrix. Default is 2
+	 */
+	public RandomizedSVD setPowerIterations(int powerIterations) {
+		this.powerIterations = Math.max(0, powerIterations);
+		return this;
+	}
+
+	/**
+	 * Seed of the random vectors so the decomposition is reproducible
+	 */
+	public RandomizedSVD setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	@Override
+	public String getName() {
+		return "Randomized(p=" + oversampling + ",q=" + powerIterations + ")";
+	}
+
+	@Override
+	public TruncatedDecomposition decompose(ColumnSource a, int k) throws IOException {
+		int terms = a.getRowDimension();
+		int documents = a.getColumnDimension();
+		k = Math.min(k, Math.min(terms, documents));
+		int l = Math.min(k + oversampling, Math.min(terms, documents));
+
+		// Y = A*Omega with a gaussian Omega
+		Random random = new Random(seed);
+		double[][] omega = new double[documents][l];
+		for (int j = 0; j < documents; j++) {
+			for (int i = 0; i < l; i++) {
+				omega[j][i] = random.nextGaussian();
+			}
+		}
+		double[][] q = orthonormalize(times(a, omega, terms, l));
+
+		// Power iterations Q = orth(A*orth(A^T*Q))
+		for (int p = 0; p < powerIterations; p++) {
+			double[][] z = orthonormalize(transposeTimes(a, q, documents, l));
+			q = orthonormalize(times(a, z, terms, l));
+		}
+
+		// B = Q^T*A is l x D. Decompose B^T = W*S*X^T, then A ~ (Q*X)*S*W^T
+		Matrix bt = new Matrix(transposeTimes(a, q, documents, l), documents, l);
+		SingularValueDecomposition svd = bt.svd();
+		Matrix u = new Matrix(q, terms, l).times(svd.getV()).getMatrix(0, terms - 1, 0, k - 1);
+		Matrix v = svd.getU().getMatrix(0, documents - 1, 0, k - 1);
+		double[] s = new double[k];
+		System.arraycopy(svd.getSingularValues(), 0, s, 0, k);
+		return new TruncatedDecomposition(u, s, v);
+	}
+
+	/**
+	 * A*X in one pass over the columns of A
+	 */
+	static double[][] times(ColumnSource a, final double[][] x, int terms, final int l) throws IOException {
+		final double[][] y = new double[terms][l];
+		a.forEachColumn(new ColumnSource.ColumnVisitor() {
+			@Override
+			public void visit(int column, int[] rows, double[] values, int length) {
+				double[] xj = x[column];
+				for (int n = 0; n < length; n++) {
+					double[] yr = y[rows[n]];
+					double value = values[n];
+					for (int i = 0; i < l; i++) {
+						yr[i] += value * xj[i];
+					}
+				}
+			}
+		});
+		return y;
+	}
+
+	/**
+	 * (A^T)*Q in one pass over the columns of A
+	 */
+	static double[][] transposeTimes(ColumnSource a, final double[][] q, int documents, final int l)
+			throws IOException {
+		final double[][] z = new double[documents][l];
+		a.forEachColumn(new ColumnSource.ColumnVisitor() {
+			@Override
+			public void visit(int column, int[] rows, double[] values, int length) {
+				double[] zj = z[column];
+				for (int n = 0; n < length; n++) {
+					double[] qr = q[rows[n]];
+					double value = values[n];
+					for (int i = 0; i < l; i++) {
+						zj[i] += value * qr[i];
+					}
+				}
+			}
+		});
+		return z;
+	}
+
+	/**
+	 * Orthonormal basis of the columns of a tall matrix
+	 */
+	static double[][] orthonormalize(double[][] y) {
+		int l = y.length == 0 ? 0 : y[0].length;
+		return new Matrix(y, y.length, l).qr().getQ().getArray();
+	}
+
+}
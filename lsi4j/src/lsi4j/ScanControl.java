@@ -0,0 +1,60 @@
+package lsi4j;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Deadline and cancellation of a query. The scan checks it before each block of
+ * documents and stops with a {@link CancellationException}.
+ * 
+ * @author Jabier Martinez
+ */
+final class ScanControl {
+
+	// System.nanoTime() of the deadline
+	private final long deadline;
+	private final boolean hasDeadline;
+
+	private volatile boolean cancelled;
+
+	/**
+	 * @param timeoutNanos
+	 *            Time for the query or a negative value for no deadline
+	 */
+	ScanControl(long timeoutNanos) {
+		this.hasDeadline = timeoutNanos >= 0;
+		this.deadline = System.nanoTime() + Math.max(0, timeoutNanos);
+	}
+
+	void cancel() {
+		cancelled = true;
+	}
+
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	boolean isExpired() {
+		return hasDeadline && System.nanoTime() - deadline >= 0;
+	}
+
+	/**
+	 * @return Nanoseconds until the deadline or Long.MAX_VALUE if there is no
+	 *         deadline
+	 */
+	long remainingNanos() {
+		return hasDeadline ? Math.max(0, deadline - System.nanoTime()) : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Stop the scan if the query was cancelled or its deadline was exceeded
+	 */
+	void check() {
+		if (cancelled) {
+			throw new CancellationException("The query was cancelled");
+		}
+		if (isExpired()) {
+			throw new CancellationException("The deadline of the query was exceeded");
+		}
+	}
+
+}
@@ -0,0 +1,415 @@
+package lsi4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Writes the similarities of many queries with all the documents of a model to
+ * a file. The queries are scored in blocks (see
+ * {@link LSI4J#applyLSIBatch(List)}) whose size is limited by a memory budget,
+ * and each block is written through a buffered file channel before the next
+ * one is scored, so the memory does not grow with the number of queries.
+ * 
+ * The file has a header, then one record per query with the query index, the
+ * number of scores, the documents (only in the sparse format), the scores in
+ * float and a CRC32 of the record. A record that was not completely written,
+ * for example after a crash, fails its check. Writing again to the same file
+ * truncates it after the last complete record and continues with the next
+ * query.
+ * 
+ * @author Jabier Martinez
+ */
+public class ScoreExport {
+
+	// Formats of the file
+	public static final int FORMAT_DENSE = 0;
+	public static final int FORMAT_SPARSE = 1;
+
+	private static final int MAGIC = 0x4c534945;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 32;
+
+	private static final int BUFFER_BYTES = 1024 * 1024;
+
+	/**
+	 * Receives the scores of each query of a file
+	 */
+	public interface ScoreVisitor {
+
+		/**
+		 * @param query
+		 *            Index of the query
+		 * @param documents
+		 *            The documents that have a score. Only valid during the call
+		 * @param scores
+		 *            The scores. Only valid during the call
+		 * @param length
+		 *            Number of scores in the arrays
+		 */
+		void visit(int query, int[] documents, float[] scores, int length);
+	}
+
+	private final LSI4J lsi;
+	private int format = FORMAT_DENSE;
+	private double threshold = -1;
+	private long memoryBudget = 64L * 1024 * 1024;
+
+	/**
+	 * ScoreExport
+	 * 
+	 * @param lsi
+	 *            The model that scores the queries
+	 */
+	public ScoreExport(LSI4J lsi) {
+		this.lsi = lsi;
+	}
+
+	/**
+	 * Write only the scores greater or equal than a threshold with their
+	 * documents. Default is to write all the scores of each query
+	 * 
+	 * @param threshold
+	 *            Minimum cosine similarity
+	 */
+	public ScoreExport setSparse(double threshold) {
+		this.format = FORMAT_SPARSE;
+		this.threshold = threshold;
+		return this;
+	}
+
+	/**
+	 * Maximum memory of the similarities of a block of queries. Default is 64 MB
+	 * 
+	 * @param bytes
+	 */
+	public ScoreExport setMemoryBudget(long bytes) {
+		this.memoryBudget = bytes;
+		return this;
+	}
+
+	/**
+	 * @return The number of queries scored together
+	 */
+	public int getQueriesPerBlock() {
+		long perQuery = 8L * Math.max(1, lsi.getNumberOfDocuments());
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / perQuery));
+	}
+
+	/**
+	 * Write the scores of the queries. If the file already has some complete
+	 * records written with the same format, those queries are skipped and the
+	 * export continues with the next one.
+	 * 
+	 * @param file
+	 *            The file to create or to continue
+	 * @param queries
+	 *            The queries, each of them is a list of words. They are read
+	 *            once, block by block
+	 * @return The number of queries in the file
+	 */
+	public int write(Path file, Iterable<List<String>> queries) throws IOException {
+		int documents = lsi.getNumberOfDocuments();
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			int written;
+			long position;
+			if (channel.size() < HEADER_BYTES) {
+				// A new file or one whose header was not completely written
+				channel.truncate(0);
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+				header.putInt(MAGIC).putInt(VERSION).putInt(format).putInt(documents).putDouble(threshold);
+				header.position(HEADER_BYTES);
+				header.flip();
+				writeFully(channel, header, 0);
+				written = 0;
+				position = HEADER_BYTES;
+			} else {
+				RecordReader reader = new RecordReader(channel, file);
+				if (reader.format != format || reader.numberOfDocuments != documents
+						|| Double.compare(reader.threshold, threshold) != 0) {
+					throw new IOException("The file was written with other settings: " + file);
+				}
+				while (reader.next()) {
+					// only check the records
+				}
+				written = reader.records;
+				position = reader.end;
+				// Drop what is after the last complete record
+				channel.truncate(position);
+			}
+
+			Iterator<List<String>> iterator = queries.iterator();
+			for (int skip = 0; skip < written && iterator.hasNext(); skip++) {
+				iterator.next();
+			}
+
+			RecordWriter writer = new RecordWriter(channel, position);
+			int perBlock = getQueriesPerBlock();
+			List<List<String>> block = new ArrayList<List<String>>(Math.min(perBlock, 1024));
+			while (iterator.hasNext()) {
+				block.clear();
+				while (block.size() < perBlock && iterator.hasNext()) {
+					block.add(iterator.next());
+				}
+				double[][] scores = lsi.applyLSIBatch(block);
+				if (scores == null) {
+					throw new IOException("The queries could not be scored");
+				}
+				for (int n = 0; n < scores.length; n++) {
+					writer.write(written++, scores[n]);
+					// the scores of the query are not needed anymore
+					scores[n] = null;
+				}
+				// A block is on disk before the next one is scored
+				writer.flush();
+				channel.force(false);
+			}
+			return written;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Read the complete records of a file
+	 * 
+	 * @param file
+	 * @param visitor
+	 *            Receives the scores of each query in order
+	 * @return The number of queries read
+	 */
+	public static int read(Path file, ScoreVisitor visitor) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			RecordReader reader = new RecordReader(channel, file);
+			while (reader.next()) {
+				visitor.visit(reader.query, reader.documents, reader.scores, reader.length);
+			}
+			return reader.records;
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Writes the records one after the other through a buffer
+	 */
+	private class RecordWriter {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		private final CRC32 crc = new CRC32();
+		private ByteBuffer record = ByteBuffer.allocate(1024);
+		private long position;
+
+		RecordWriter(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		void write(int query, double[] scores) throws IOException {
+			int length = 0;
+			if (format == FORMAT_SPARSE) {
+				for (double score : scores) {
+					if (score >= threshold) {
+						length++;
+					}
+				}
+			} else {
+				length = scores.length;
+			}
+			int bytes = 8 + (format == FORMAT_SPARSE ? 8 : 4) * length + 4;
+			if (record.capacity() < bytes) {
+				record = ByteBuffer.allocate(bytes);
+			}
+			record.clear();
+			record.putInt(query).putInt(length);
+			if (format == FORMAT_SPARSE) {
+				for (int d = 0; d < scores.length; d++) {
+					if (scores[d] >= threshold) {
+						record.putInt(d);
+					}
+				}
+				for (double score : scores) {
+					if (score >= threshold) {
+						record.putFloat((float) score);
+					}
+				}
+			} else {
+				for (double score : scores) {
+					record.putFloat((float) score);
+				}
+			}
+			crc.reset();
+			crc.update(record.array(), 0, record.position());
+			record.putInt((int) crc.getValue());
+			record.flip();
+
+			if (record.remaining() > buffer.remaining()) {
+				flush();
+			}
+			if (record.remaining() > buffer.capacity()) {
+				writeFully(channel, record, position);
+				position += bytes;
+			} else {
+				buffer.put(record);
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			int bytes = buffer.remaining();
+			writeFully(channel, buffer, position);
+			position += bytes;
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Reads the header and then the records one after the other. The reading
+	 * stops at the first record that is not complete or fails its check.
+	 */
+	private static class RecordReader {
+
+		private final FileChannel channel;
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		private final CRC32 crc = new CRC32();
+
+		// Position in the file of the first byte after the buffer
+		private long filePosition;
+
+		final int format;
+		final int numberOfDocuments;
+		final double threshold;
+
+		// The last record read
+		int query;
+		int length;
+		int[] documents;
+		float[] scores = new float[0];
+
+		// Number of complete records and the end of the last one
+		int records;
+		long end = HEADER_BYTES;
+
+		// The documents of a sparse record and of a dense one
+		private int[] documentIds = new int[0];
+		private int[] allDocuments;
+
+		RecordReader(FileChannel channel, Path file) throws IOException {
+			this.channel = channel;
+			buffer.limit(0);
+			if (!ensure(HEADER_BYTES)) {
+				throw new IOException("Not a score file: " + file);
+			}
+			int start = buffer.position();
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a score file: " + file);
+			}
+			this.format = buffer.getInt();
+			this.numberOfDocuments = buffer.getInt();
+			this.threshold = buffer.getDouble();
+			buffer.position(start + HEADER_BYTES);
+		}
+
+		/**
+		 * Read the next record
+		 * 
+		 * @return false if there is no other complete record
+		 */
+		boolean next() throws IOException {
+			if (!ensure(8)) {
+				return false;
+			}
+			int start = buffer.position();
+			int recordQuery = buffer.getInt(start);
+			int recordLength = buffer.getInt(start + 4);
+			if (recordQuery != records || recordLength < 0 || recordLength > numberOfDocuments) {
+				return false;
+			}
+			int bytes = 8 + (format == FORMAT_SPARSE ? 8 : 4) * recordLength + 4;
+			if (!ensure(bytes)) {
+				return false;
+			}
+			start = buffer.position();
+			crc.reset();
+			crc.update(buffer.array(), start, bytes - 4);
+			if (buffer.getInt(start + bytes - 4) != (int) crc.getValue()) {
+				return false;
+			}
+
+			buffer.position(start + 8);
+			if (scores.length < recordLength) {
+				scores = new float[recordLength];
+				documentIds = new int[recordLength];
+			}
+			if (format == FORMAT_SPARSE) {
+				for (int i = 0; i < recordLength; i++) {
+					documentIds[i] = buffer.getInt();
+				}
+				documents = documentIds;
+			} else {
+				if (allDocuments == null) {
+					allDocuments = new int[numberOfDocuments];
+					for (int d = 0; d < allDocuments.length; d++) {
+						allDocuments[d] = d;
+					}
+				}
+				documents = allDocuments;
+			}
+			for (int i = 0; i < recordLength; i++) {
+				scores[i] = buffer.getFloat();
+			}
+			buffer.position(start + bytes);
+
+			query = recordQuery;
+			length = recordLength;
+			records++;
+			end += bytes;
+			return true;
+		}
+
+		/**
+		 * Make the next bytes of the file available in the buffer
+		 * 
+		 * @return false if the file ends before
+		 */
+		private boolean ensure(int bytes) throws IOException {
+			if (buffer.remaining() >= bytes) {
+				return true;
+			}
+			if (buffer.capacity() < bytes) {
+				ByteBuffer bigger = ByteBuffer.allocate(bytes);
+				bigger.put(buffer);
+				buffer = bigger;
+			} else {
+				buffer.compact();
+			}
+			while (buffer.position() < bytes) {
+				int read = channel.read(buffer, filePosition);
+				if (read < 0) {
+					buffer.flip();
+					return false;
+				}
+				filePosition += read;
+			}
+			buffer.flip();
+			return true;
+		}
+	}
+
+}
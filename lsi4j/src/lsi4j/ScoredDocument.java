@@ -0,0 +1,52 @@
+package lsi4j;
+
+import java.util.Comparator;
+
+/**
+ * A document of the model together with its similarity to a query
+ * 
+ * @author Jabier Martinez
+ */
+public class ScoredDocument {
+
+	// Order by similarity (highest first) and then by document index so the
+	// ranking is deterministic when two documents have the same similarity
+	public static final Comparator<ScoredDocument> BY_SIMILARITY = new Comparator<ScoredDocument>() {
+		@Override
+		public int compare(ScoredDocument a, ScoredDocument b) {
+			int c = Double.compare(b.similarity, a.similarity);
+			if (c == 0) {
+				c = Integer.compare(a.document, b.document);
+			}
+			return c;
+		}
+	};
+
+	private final int document;
+	private final double similarity;
+
+	public ScoredDocument(int document, double similarity) {
+		this.document = document;
+		this.similarity = similarity;
+	}
+
+	/**
+	 * @return The index of the document in the list used to create the model
+	 */
+	public int getDocument() {
+		return document;
+	}
+
+	/**
+	 * @return The cosine similarity with the query
+	 */
+	public double getSimilarity() {
+		return similarity;
+	}
+
+	@Override
+	public String toString() {
+		return document + "=" + similarity;
+	}
+
+}
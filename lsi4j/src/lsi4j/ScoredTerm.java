@@ -0,0 +1,37 @@
+package lsi4j;
+
+/**
+ * A term of the model together with its similarity to another term
+ * 
+ * @author Jabier Martinez
+ */
+public class ScoredTerm {
+
+	private final String term;
+	private final double similarity;
+
+	public ScoredTerm(String term, double similarity) {
+		this.term = term;
+		this.similarity = similarity;
+	}
+
+	/**
+	 * @return The term as it is in the model (lowercase)
+	 */
+	public String getTerm() {
+		return term;
+	}
+
+	/**
+	 * @return The cosine similarity in the latent space
+	 */
+	public double getSimilarity() {
+		return similarity;
+	}
+
+	@Override
+	public String toString() {
+		return term + "=" + similarity;
+	}
+
+}
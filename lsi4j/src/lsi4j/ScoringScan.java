@@ -0,0 +1,446 @@
+package lsi4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scan of the document vectors computing the cosine with a query. The documents
+ * are split in blocks that fit in the cache and the blocks are scored in a
+ * ForkJoinPool. Each block writes its own slots of the answer so the full array
+ * is the same whatever the number of threads. For the top-k, each task keeps
+ * its own heap and the heaps are merged when the tasks are joined. The
+ * documents rejected by a filter are skipped before computing the cosine. The
+ * deadline and cancellation of the query are checked before each block.
+ * 
+ * @author Jabier Martinez
+ */
+final class ScoringScan {
+
+	// Approximate size of the data of a block (L2 cache)
+	private static final int BLOCK_BYTES = 256 * 1024;
+
+	private static final int MIN_BLOCK_SIZE = 64;
+
+	// Below this ratio of accepted documents only the accepted ones are visited
+	static final double SELECTIVE_FILTER = 0.1;
+
+	private ScoringScan() {
+	}
+
+	/**
+	 * Number of documents per block so the vectors and norms of a block fit in
+	 * the cache
+	 */
+	static int defaultBlockSize(int dimension) {
+		return Math.max(MIN_BLOCK_SIZE, BLOCK_BYTES / (8 * (dimension + 1)));
+	}
+
+	/**
+	 * Similarity of the query with every document
+	 */
+	static double[] scoreAll(ForkJoinPool pool, LatentVectors vectors, double[] q, int blockSize) {
+		return scoreAll(pool, vectors, q, blockSize, null, null, null);
+	}
+
+	/**
+	 * Similarity of the query with the documents accepted by a filter that were
+	 * not removed. The other documents are not scored and their similarity is -1
+	 */
+	static double[] scoreAll(ForkJoinPool pool, LatentVectors vectors, double[] q, int blockSize,
+			DocumentFilter filter, Tombstones removed, ScanControl control) {
+		Scan scan = new Scan(vectors, q, blockSize, filter, removed, control);
+		double[] answer = new double[vectors.numberOfDocuments()];
+		if (scan.rows != null || scan.filter != null || (removed != null && removed.count() > 0)
+				|| vectors.size() < vectors.numberOfDocuments()) {
+			Arrays.fill(answer, -1);
+		}
+		ScoreAll task = new ScoreAll(scan, answer, 0, scan.size());
+		if (scan.size() <= blockSize) {
+			// not worth to go to the pool
+			task.compute();
+		} else {
+			pool.invoke(task);
+		}
+		return answer;
+	}
+
+	/**
+	 * Similarity of several queries with every document that was not removed.
+	 * Each block of documents is scored against all the queries so the vectors
+	 * of a block are read once for the whole batch. The removed documents are
+	 * not scored and their similarity is -1
+	 */
+	static double[][] scoreAll(ForkJoinPool pool, LatentVectors vectors, double[][] queries, int blockSize,
+			Tombstones removed) {
+		double[][] answers = new double[queries.length][vectors.numberOfDocuments()];
+		if ((removed != null && removed.count() > 0) || vectors.size() < vectors.numberOfDocuments()) {
+			for (double[] answer : answers) {
+				Arrays.fill(answer, -1);
+			}
+		}
+		double[] norms = new double[queries.length];
+		for (int n = 0; n < queries.length; n++) {
+			norms[n] = LatentVectors.norm(queries[n]);
+		}
+		ScoreBatch task = new ScoreBatch(vectors, queries, norms, removed, answers, 0, vectors.size(), blockSize);
+		if (vectors.size() <= blockSize) {
+			task.compute();
+		} else {
+			pool.invoke(task);
+		}
+		return answers;
+	}
+
+	/**
+	 * The k most similar documents, most similar first
+	 */
+	static List<ScoredDocument> topK(ForkJoinPool pool, LatentVectors vectors, double[] q, int k, int blockSize) {
+		return topK(pool, vectors, q, k, blockSize, null, null, null);
+	}
+
+	/**
+	 * The k most similar documents accepted by a filter that were not removed,
+	 * most similar first
+	 */
+	static List<ScoredDocument> topK(ForkJoinPool pool, LatentVectors vectors, double[] q, int k, int blockSize,
+			DocumentFilter filter, Tombstones removed, ScanControl control) {
+		if (k <= 0) {
+			return new ArrayList<ScoredDocument>();
+		}
+		Scan scan = new Scan(vectors, q, blockSize, filter, removed, control);
+		TopK task = new TopK(scan, k, 0, scan.size());
+		PriorityQueue<ScoredDocument> heap;
+		if (scan.size() <= blockSize) {
+			heap = task.compute();
+		} else {
+			heap = pool.invoke(task);
+		}
+		List<ScoredDocument> result = new ArrayList<ScoredDocument>(heap);
+		Collections.sort(result, ScoredDocument.BY_SIMILARITY);
+		return result;
+	}
+
+	/**
+	 * All the pairs of rows with a similarity greater or equal than the
+	 * threshold, most similar first. Each task compares one block of rows with
+	 * the following rows, block by block, so the matrix of all the similarities
+	 * is never created.
+	 */
+	static List<SimilarPair> pairs(ForkJoinPool pool, LatentVectors vectors, double threshold, int blockSize,
+			Tombstones removed) {
+		Pairs task = new Pairs(vectors, threshold, removed, 0, vectors.size(), blockSize);
+		List<SimilarPair> result;
+		if (vectors.size() <= blockSize) {
+			result = task.compute();
+		} else {
+			result = pool.invoke(task);
+		}
+		Collections.sort(result, SimilarPair.BY_SIMILARITY);
+		return result;
+	}
+
+	/**
+	 * What is scanned. When the filter is selective enough the scan goes through
+	 * the rows of the accepted documents instead of through all the rows.
+	 */
+	private static final class Scan {
+
+		final LatentVectors vectors;
+		final double[] q;
+		final double qNorm;
+		final int blockSize;
+
+		// Rows to score or null to score all of them
+		final int[] rows;
+
+		// Filter to apply during the scan or null
+		final DocumentFilter filter;
+
+		// Removed documents or null
+		final Tombstones removed;
+
+		// Deadline and cancellation or null
+		final ScanControl control;
+
+		Scan(LatentVectors vectors, double[] q, int blockSize, DocumentFilter filter, Tombstones removed,
+				ScanControl control) {
+			this.vectors = vectors;
+			this.q = q;
+			this.qNorm = LatentVectors.norm(q);
+			this.blockSize = blockSize;
+			int[] selected = filter == null ? null
+					: filter.selectedDocuments(vectors.numberOfDocuments(), SELECTIVE_FILTER);
+			this.rows = selected == null ? null : toRows(vectors, selected);
+			this.filter = selected == null ? filter : null;
+			this.removed = removed;
+			this.control = control;
+		}
+
+		/**
+		 * Called before each block
+		 */
+		void check() {
+			if (control != null) {
+				control.check();
+			}
+		}
+
+		int size() {
+			return rows == null ? vectors.size() : rows.length;
+		}
+
+		int row(int position) {
+			return rows == null ? position : rows[position];
+		}
+
+		boolean accept(int document) {
+			return (removed == null || !removed.isRemoved(document))
+					&& (filter == null || filter.accept(document));
+		}
+
+		private static int[] toRows(LatentVectors vectors, int[] documents) {
+			int[] rows = new int[documents.length];
+			int n = 0;
+			for (int document : documents) {
+				int row = vectors.row(document);
+				if (row != -1) {
+					rows[n++] = row;
+				}
+			}
+			return Arrays.copyOf(rows, n);
+		}
+	}
+
+	private static final class ScoreAll extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Scan scan;
+		private final double[] answer;
+		private final int from;
+		private final int to;
+
+		ScoreAll(Scan scan, double[] answer, int from, int to) {
+			this.scan = scan;
+			this.answer = answer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= scan.blockSize) {
+				scan.check();
+				for (int p = from; p < to; p++) {
+					int row = scan.row(p);
+					int document = scan.vectors.id(row);
+					if (scan.accept(document)) {
+						answer[document] = scan.vectors.cosine(row, scan.q, scan.qNorm);
+					}
+				}
+			} else {
+				int middle = split(from, to, scan.blockSize);
+				invokeAll(new ScoreAll(scan, answer, from, middle), new ScoreAll(scan, answer, middle, to));
+			}
+		}
+	}
+
+	private static final class ScoreBatch extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final LatentVectors vectors;
+		private final double[][] queries;
+		private final double[] norms;
+		private final Tombstones removed;
+		private final double[][] answers;
+		private final int from;
+		private final int to;
+		private final int blockSize;
+
+		ScoreBatch(LatentVectors vectors, double[][] queries, double[] norms, Tombstones removed,
+				double[][] answers, int from, int to, int blockSize) {
+			this.vectors = vectors;
+			this.queries = queries;
+			this.norms = norms;
+			this.removed = removed;
+			this.answers = answers;
+			this.from = from;
+			this.to = to;
+			this.blockSize = blockSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= blockSize) {
+				for (int row = from; row < to; row++) {
+					int document = vectors.id(row);
+					if (removed == null || !removed.isRemoved(document)) {
+						for (int n = 0; n < queries.length; n++) {
+							answers[n][document] = vectors.cosine(row, queries[n], norms[n]);
+						}
+					}
+				}
+			} else {
+				int middle = split(from, to, blockSize);
+				invokeAll(new ScoreBatch(vectors, queries, norms, removed, answers, from, middle, blockSize),
+						new ScoreBatch(vectors, queries, norms, removed, answers, middle, to, blockSize));
+			}
+		}
+	}
+
+	private static final class TopK extends RecursiveTask<PriorityQueue<ScoredDocument>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Scan scan;
+		private final int k;
+		private final int from;
+		private final int to;
+
+		TopK(Scan scan, int k, int from, int to) {
+			this.scan = scan;
+			this.k = k;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected PriorityQueue<ScoredDocument> compute() {
+			if (to - from <= scan.blockSize) {
+				scan.check();
+				PriorityQueue<ScoredDocument> heap = newHeap(k, to - from);
+				for (int p = from; p < to; p++) {
+					int row = scan.row(p);
+					int document = scan.vectors.id(row);
+					if (scan.accept(document)) {
+						offer(heap, k, document, scan.vectors.cosine(row, scan.q, scan.qNorm));
+					}
+				}
+				return heap;
+			}
+			int middle = split(from, to, scan.blockSize);
+			TopK left = new TopK(scan, k, from, middle);
+			TopK right = new TopK(scan, k, middle, to);
+			right.fork();
+			return merge(left.compute(), right.join(), k);
+		}
+	}
+
+	private static final class Pairs extends RecursiveTask<List<SimilarPair>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final LatentVectors vectors;
+		private final double threshold;
+		private final Tombstones removed;
+		private final int from;
+		private final int to;
+		private final int blockSize;
+
+		Pairs(LatentVectors vectors, double threshold, Tombstones removed, int from, int to, int blockSize) {
+			this.vectors = vectors;
+			this.threshold = threshold;
+			this.removed = removed;
+			this.from = from;
+			this.to = to;
+			this.blockSize = blockSize;
+		}
+
+		@Override
+		protected List<SimilarPair> compute() {
+			if (to - from <= blockSize) {
+				List<SimilarPair> pairs = new ArrayList<SimilarPair>();
+				// The rows of this block against the blocks of the following rows
+				for (int blockStart = from; blockStart < vectors.size(); blockStart += blockSize) {
+					int blockEnd = Math.min(blockStart + blockSize, vectors.size());
+					for (int i = from; i < to; i++) {
+						if (isRemoved(i)) {
+							continue;
+						}
+						for (int j = Math.max(blockStart, i + 1); j < blockEnd; j++) {
+							if (isRemoved(j)) {
+								continue;
+							}
+							double similarity = vectors.cosine(i, j);
+							if (similarity >= threshold) {
+								pairs.add(new SimilarPair(vectors.id(i), vectors.id(j), similarity));
+							}
+						}
+					}
+				}
+				return pairs;
+			}
+			int middle = split(from, to, blockSize);
+			Pairs left = new Pairs(vectors, threshold, removed, from, middle, blockSize);
+			Pairs right = new Pairs(vectors, threshold, removed, middle, to, blockSize);
+			right.fork();
+			List<SimilarPair> pairs = left.compute();
+			pairs.addAll(right.join());
+			return pairs;
+		}
+
+		private boolean isRemoved(int row) {
+			return removed != null && removed.isRemoved(vectors.id(row));
+		}
+	}
+
+	/**
+	 * Split in two halves keeping the blocks aligned
+	 */
+	private static int split(int from, int to, int blockSize) {
+		int blocks = (to - from + blockSize - 1) / blockSize;
+		return from + (blocks / 2) * blockSize;
+	}
+
+	/**
+	 * Heap where the head is the worst of the selected documents
+	 * 
+	 * @param k
+	 *            Number of documents to select
+	 * @param candidates
+	 *            Number of documents that can be offered, so a big k does not
+	 *            allocate more than needed
+	 */
+	static PriorityQueue<ScoredDocument> newHeap(int k, int candidates) {
+		return new PriorityQueue<ScoredDocument>(Math.max(0, Math.min(k, candidates)) + 1,
+				Collections.reverseOrder(ScoredDocument.BY_SIMILARITY));
+	}
+
+	static void offer(PriorityQueue<ScoredDocument> heap, int k, int document, double similarity) {
+		if (k <= 0) {
+			return;
+		}
+		if (heap.size() < k) {
+			heap.add(new ScoredDocument(document, similarity));
+			return;
+		}
+		ScoredDocument worst = heap.peek();
+		// Only create the candidate if it is better than the worst selected
+		if (similarity > worst.getSimilarity()
+				|| (similarity == worst.getSimilarity() && document < worst.getDocument())) {
+			heap.poll();
+			heap.add(new ScoredDocument(document, similarity));
+		}
+	}
+
+	static PriorityQueue<ScoredDocument> merge(PriorityQueue<ScoredDocument> a, PriorityQueue<ScoredDocument> b,
+			int k) {
+		if (a.size() < b.size()) {
+			PriorityQueue<ScoredDocument> tmp = a;
+			a = b;
+			b = tmp;
+		}
+		for (ScoredDocument d : b) {
+			offer(a, k, d.getDocument(), d.getSimilarity());
+		}
+		return a;
+	}
+
+}
@@ -0,0 +1,26 @@
+package lsi4j;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * How the coordinator of a {@link ShardedLSI} reaches a shard. A shard can be
+ * in the same process ({@link LocalShardClient}) or behind any transport.
+ * 
+ * @author Jabier Martinez
+ */
+public interface ShardClient {
+
+	/**
+	 * Get the most similar documents of the shard
+	 * 
+	 * @param q
+	 *            The query folded in the model
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents with their global index, the most
+	 *         similar first
+	 */
+	CompletableFuture<List<ScoredDocument>> applyLSI(double[] q, int k);
+
+}
@@ -0,0 +1,151 @@
+package lsi4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * LSI with the documents split in shards. The model (terms, U_k and S_k) is
+ * trained once, maybe with a sample of the documents, and it is only used to
+ * fold in the documents and the queries. The coordinator sends the folded
+ * query to all the shards and merges their top k.
+ * 
+ * @author Jabier Martinez
+ */
+public class ShardedLSI {
+
+	private final LSI4J model;
+
+	private final AtomicReferenceArray<ShardClient> shards;
+
+	/**
+	 * ShardedLSI
+	 * 
+	 * @param model
+	 *            The model used to fold in the queries
+	 * @param shards
+	 *            The shards with the documents folded in the same model
+	 */
+	public ShardedLSI(LSI4J model, List<ShardClient> shards) {
+		this.model = model;
+		this.shards = new AtomicReferenceArray<ShardClient>(shards.toArray(new ShardClient[shards.size()]));
+	}
+
+	/**
+	 * Fold in the documents and split them in shards of consecutive documents
+	 * 
+	 * @param model
+	 *            The trained model
+	 * @param documents
+	 *            A list of documents where each of them is a list of words. The
+	 *            global index of a document is its position in this list
+	 * @param numberOfShards
+	 *            Number of shards
+	 * @param pool
+	 *            Pool to score the documents of the shards
+	 * @return The shards
+	 */
+	public static List<LSIShard> createShards(LSI4J model, List<List<String>> documents, int numberOfShards,
+			ForkJoinPool pool) {
+		List<LSIShard> result = new ArrayList<LSIShard>();
+		int from = 0;
+		for (int shard = 0; shard < numberOfShards; shard++) {
+			int to = (int) ((long) documents.size() * (shard + 1) / numberOfShards);
+			result.add(createShard(model, documents, from, to, pool));
+			from = to;
+		}
+		return result;
+	}
+
+	/**
+	 * Fold in a range of documents to create (or rebuild) one shard. The
+	 * vectors are stored in the precision of the model
+	 * 
+	 * @param from
+	 *            Global index of the first document (inclusive)
+	 * @param to
+	 *            Global index of the last document (exclusive)
+	 */
+	public static LSIShard createShard(LSI4J model, List<List<String>> documents, int from, int to,
+			ForkJoinPool pool) {
+		int[] ids = new int[to - from];
+		double[][] vectors = new double[to - from][];
+		for (int i = from; i < to; i++) {
+			ids[i - from] = i;
+			vectors[i - from] = model.foldIn(documents.get(i));
+		}
+		return new LSIShard(ids, vectors, pool, model.getPrecision());
+	}
+
+	/**
+	 * Apply LSI for a given query in all the shards
+	 * 
+	 * @param query
+	 * @param k
+	 *            Maximum number of documents to return
+	 * @return The k most similar documents of all the shards, the most similar
+	 *         first
+	 */
+	public List<ScoredDocument> applyLSI(List<String> query, int k) {
+
+		List<ScoredDocument> answer;
+
+		try {
+
+			// Scatter
+			double[] q = model.foldIn(query);
+			List<CompletableFuture<List<ScoredDocument>>> futures;
+			futures = new ArrayList<CompletableFuture<List<ScoredDocument>>>();
+			for (int i = 0; i < shards.length(); i++) {
+				futures.add(shards.get(i).applyLSI(q, k));
+			}
+
+			// Gather
+			List<List<ScoredDocument>> tops = new ArrayList<List<ScoredDocument>>();
+			int candidates = 0;
+			for (CompletableFuture<List<ScoredDocument>> future : futures) {
+				List<ScoredDocument> top = future.join();
+				tops.add(top);
+				candidates += top.size();
+			}
+			PriorityQueue<ScoredDocument> heap = ScoringScan.newHeap(k, candidates);
+			for (List<ScoredDocument> top : tops) {
+				for (ScoredDocument d : top) {
+					ScoringScan.offer(heap, k, d.getDocument(), d.getSimilarity());
+				}
+			}
+			answer = new ArrayList<ScoredDocument>(heap);
+			Collections.sort(answer, ScoredDocument.BY_SIMILARITY);
+
+		} catch (Exception e) {
+			answer = null;
+			e.printStackTrace();
+		}
+
+		return answer;
+	}
+
+	/**
+	 * Replace a shard, for example after rebuilding it. The queries that are
+	 * running keep using the previous one.
+	 * 
+	 * @param index
+	 *            Index of the shard
+	 * @param shard
+	 */
+	public void setShard(int index, ShardClient shard) {
+		shards.set(index, shard);
+	}
+
+	/**
+	 * @return The number of shards
+	 */
+	public int getNumberOfShards() {
+		return shards.length();
+	}
+
+}
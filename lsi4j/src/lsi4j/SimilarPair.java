@@ -0,0 +1,64 @@
+package lsi4j;
+
+import java.util.Comparator;
+
+/**
+ * Two documents (or two terms) whose similarity in the latent space is above a
+ * threshold
+ * 
+ * @author Jabier Martinez
+ */
+public class SimilarPair {
+
+	// Most similar first and then by indexes
+	public static final Comparator<SimilarPair> BY_SIMILARITY = new Comparator<SimilarPair>() {
+		@Override
+		public int compare(SimilarPair a, SimilarPair b) {
+			int c = Double.compare(b.similarity, a.similarity);
+			if (c == 0) {
+				c = Integer.compare(a.first, b.first);
+			}
+			if (c == 0) {
+				c = Integer.compare(a.second, b.second);
+			}
+			return c;
+		}
+	};
+
+	private final int first;
+	private final int second;
+	private final double similarity;
+
+	public SimilarPair(int first, int second, double similarity) {
+		this.first = first;
+		this.second = second;
+		this.similarity = similarity;
+	}
+
+	/**
+	 * @return The smallest index of the pair
+	 */
+	public int getFirst() {
+		return first;
+	}
+
+	/**
+	 * @return The greatest index of the pair
+	 */
+	public int getSecond() {
+		return second;
+	}
+
+	/**
+	 * @return The cosine similarity in the latent space
+	 */
+	public double getSimilarity() {
+		return similarity;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + first + "," + second + ")=" + similarity;
+	}
+
+}
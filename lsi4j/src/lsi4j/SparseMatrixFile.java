@@ -0,0 +1,316 @@
+package lsi4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A term-document matrix stored on disk column by column (one column per
+ * document) with only the non zero values. The columns are read through memory
+ * mapped windows of a limited size so the matrix does not need to fit in
+ * memory.
+ * 
+ * The file has a header, then for each column the number of values, their rows
+ * and their values, and at the end the offset of each column.
+ * 
+ * @author Jabier Martinez
+ */
+public class SparseMatrixFile implements ColumnSource, Closeable {
+
+	private static final int MAGIC = 0x4c534934;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 32;
+
+	// Maximum size of the mapped window when reading columns
+	private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final int rows;
+	private final int columns;
+	private final long nonZeros;
+
+	// Offset of each column and the end of the last one
+	private final long[] offsets;
+
+	private SparseMatrixFile(FileChannel channel, int rows, int columns, long nonZeros, long[] offsets) {
+		this.channel = channel;
+		this.rows = rows;
+		this.columns = columns;
+		this.nonZeros = nonZeros;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Open a matrix file
+	 */
+	public static SparseMatrixFile open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			readFully(channel, header, 0);
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Not a sparse matrix file: " + file);
+			}
+			int rows = header.getInt();
+			int columns = header.getInt();
+			long nonZeros = header.getLong();
+			long indexOffset = header.getLong();
+
+			// Only the index is loaded in memory
+			long[] offsets = new long[columns + 1];
+			MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, 8L * (columns + 1));
+			index.asLongBuffer().get(offsets);
+			return new SparseMatrixFile(channel, rows, columns, nonZeros, offsets);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Write the term-document matrix of some documents. The documents are read
+	 * only once and the occurrences of each document are counted directly in its
+	 * sparse column.
+	 * 
+	 * @param file
+	 *            The file to create
+	 * @param terms
+	 *            The terms (rows) in lowercase, see {@link #getDifferentTerms}
+	 * @param documents
+	 *            The documents, each of them is a list of words
+	 * @return The number of documents written
+	 */
+	public static int write(Path file, List<String> terms, Iterable<List<String>> documents) throws IOException {
+		return write(file, terms, StructuredDocument.ofAll(documents), new TermExpansion());
+	}
+
+	/**
+	 * Write the term-document matrix of some structured documents. The n-grams
+	 * and the weights of the fields are counted directly in the sparse column
+	 * of each document.
+	 * 
+	 * @param file
+	 *            The file to create
+	 * @param terms
+	 *            The terms (rows), see {@link TermExpansion#getDifferentTerms}
+	 * @param documents
+	 *            The documents
+	 * @param expansion
+	 *            How the fields become terms
+	 * @return The number of documents written
+	 */
+	public static int write(Path file, List<String> terms, Iterable<StructuredDocument> documents,
+			TermExpansion expansion) throws IOException {
+		ColumnCounter counter = new ColumnCounter(terms);
+		Writer writer = new Writer(file, terms.size());
+		boolean written = false;
+		try {
+			for (StructuredDocument document : documents) {
+				int length = counter.count(document, expansion);
+				writer.addColumn(counter.rows(), counter.values(), length);
+			}
+			written = true;
+		} finally {
+			if (written) {
+				writer.close();
+			} else {
+				// Do not leave a file that looks valid with only some documents
+				writer.abort();
+			}
+		}
+		return writer.columns;
+	}
+
+	/**
+	 * Get all different terms of some documents in lowercase and in order of
+	 * appearance, reading the documents only once
+	 */
+	public static List<String> getDifferentTerms(Iterable<List<String>> documents) {
+		Map<String, Boolean> terms = new LinkedHashMap<String, Boolean>();
+		for (List<String> document : documents) {
+			for (String w : document) {
+				terms.put(w.toLowerCase(), Boolean.TRUE);
+			}
+		}
+		return new ArrayList<String>(terms.keySet());
+	}
+
+	@Override
+	public int getRowDimension() {
+		return rows;
+	}
+
+	@Override
+	public int getColumnDimension() {
+		return columns;
+	}
+
+	/**
+	 * @return The number of non zero values
+	 */
+	public long getNonZeros() {
+		return nonZeros;
+	}
+
+	@Override
+	public void forEachColumn(ColumnVisitor visitor) throws IOException {
+		int[] rowIndexes = new int[16];
+		double[] values = new double[16];
+		int column = 0;
+		while (column < columns) {
+			// Map as many columns as fit in the window (at least one)
+			int last = column + 1;
+			while (last < columns && offsets[last + 1] - offsets[column] <= WINDOW_BYTES) {
+				last++;
+			}
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offsets[column],
+					offsets[last] - offsets[column]);
+			for (; column < last; column++) {
+				int length = window.getInt();
+				if (rowIndexes.length < length) {
+					rowIndexes = new int[length];
+					values = new double[length];
+				}
+				for (int i = 0; i < length; i++) {
+					rowIndexes[i] = window.getInt();
+				}
+				for (int i = 0; i < length; i++) {
+					values[i] = window.getDouble();
+				}
+				visitor.visit(column, rowIndexes, values, length);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * Writes the columns one after the other
+	 */
+	public static class Writer implements Closeable {
+
+		private final Path file;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+		private final int rows;
+		private int columns;
+		private long nonZeros;
+		private long position;
+		private long[] offsets = new long[1024];
+
+		public Writer(Path file, int rows) throws IOException {
+			this.file = file;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			this.rows = rows;
+			// The header is written when closing
+			this.position = HEADER_BYTES;
+		}
+
+		/**
+		 * Add the next column
+		 * 
+		 * @param rowIndexes
+		 *            Rows of the non zero values
+		 * @param values
+		 *            The non zero values
+		 * @param length
+		 *            Number of values to take from the arrays
+		 */
+		public void addColumn(int[] rowIndexes, double[] values, int length) throws IOException {
+			if (columns + 1 == offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[columns++] = position;
+			nonZeros += length;
+			putInt(length);
+			for (int i = 0; i < length; i++) {
+				putInt(rowIndexes[i]);
+			}
+			for (int i = 0; i < length; i++) {
+				ensure(8);
+				buffer.putDouble(values[i]);
+				position += 8;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				offsets[columns] = position;
+				long indexOffset = position;
+				for (int i = 0; i <= columns; i++) {
+					ensure(8);
+					buffer.putLong(offsets[i]);
+					position += 8;
+				}
+				flush();
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+				header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns).putLong(nonZeros)
+						.putLong(indexOffset);
+				header.flip();
+				channel.write(header, 0);
+			} finally {
+				channel.close();
+			}
+		}
+
+		/**
+		 * Close without writing the header and delete the file, for example when
+		 * reading the documents failed
+		 */
+		public void abort() throws IOException {
+			try {
+				channel.close();
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		}
+
+		private void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+			position += 4;
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			long at = position - buffer.remaining();
+			while (buffer.hasRemaining()) {
+				at += channel.write(buffer, at);
+			}
+			buffer.clear();
+		}
+	}
+
+}
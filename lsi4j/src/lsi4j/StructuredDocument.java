@@ -0,0 +1,85 @@
+package lsi4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A document made of named fields, for example a title and a body. Each field
+ * is a list of words as in a plain document. The weight of each field and the
+ * n-grams are defined by a {@link TermExpansion}.
+ * 
+ * @author Jabier Martinez
+ */
+public class StructuredDocument {
+
+	// Field of a plain document or a query
+	public static final String DEFAULT_FIELD = "text";
+
+	private final List<String> names = new ArrayList<String>();
+	private final List<List<String>> fields = new ArrayList<List<String>>();
+
+	/**
+	 * A document with only the default field
+	 * 
+	 * @param words
+	 *            The words of the document
+	 */
+	public static StructuredDocument of(List<String> words) {
+		return new StructuredDocument().addField(DEFAULT_FIELD, words);
+	}
+
+	/**
+	 * Plain documents as documents with only the default field, created when
+	 * they are iterated
+	 */
+	static Iterable<StructuredDocument> ofAll(final Iterable<List<String>> documents) {
+		return new Iterable<StructuredDocument>() {
+			@Override
+			public Iterator<StructuredDocument> iterator() {
+				final Iterator<List<String>> iterator = documents.iterator();
+				return new Iterator<StructuredDocument>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public StructuredDocument next() {
+						return of(iterator.next());
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Add a field. A name can be used several times
+	 * 
+	 * @param name
+	 *            The name of the field
+	 * @param words
+	 *            The words of the field. They are not copied
+	 */
+	public StructuredDocument addField(String name, List<String> words) {
+		names.add(name);
+		fields.add(words);
+		return this;
+	}
+
+	/**
+	 * @return The number of fields
+	 */
+	public int getNumberOfFields() {
+		return fields.size();
+	}
+
+	public String getFieldName(int field) {
+		return names.get(field);
+	}
+
+	public List<String> getFieldWords(int field) {
+		return fields.get(field);
+	}
+
+}
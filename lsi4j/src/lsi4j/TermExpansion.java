@@ -0,0 +1,164 @@
+package lsi4j;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How the words of a document become the terms (rows) of the term-document
+ * matrix. Each field of a {@link StructuredDocument} has a weight that is
+ * added for each occurrence of its terms, and the terms are the n-grams of
+ * consecutive words of a field, from minN to maxN words joined by a space. The
+ * n-grams do not cross the fields. The terms are given one by one to a visitor
+ * so the expanded lists of terms are never created. Words are lowercase as in
+ * the rest of LSI4J.
+ * 
+ * The default is the unigrams with weight 1, i.e. the words of the documents.
+ * 
+ * @author Jabier Martinez
+ */
+public class TermExpansion {
+
+	/**
+	 * Receives each term of a document
+	 */
+	public interface TermVisitor {
+
+		/**
+		 * @param term
+		 *            The term in lowercase
+		 * @param weight
+		 *            The weight of this occurrence
+		 */
+		void visit(String term, double weight);
+	}
+
+	private int minN = 1;
+	private int maxN = 1;
+	private final Map<String, Double> fieldWeights = new HashMap<String, Double>();
+
+	/**
+	 * Use the n-grams from minN to maxN words. Default is 1 to 1
+	 * 
+	 * @param minN
+	 *            At least 1
+	 * @param maxN
+	 *            At least minN
+	 */
+	public TermExpansion setNGrams(int minN, int maxN) {
+		if (minN < 1 || maxN < minN) {
+			throw new IllegalArgumentException("Invalid n-grams " + minN + " to " + maxN);
+		}
+		this.minN = minN;
+		this.maxN = maxN;
+		return this;
+	}
+
+	/**
+	 * Weight of each occurrence of a term in a field. Default is 1
+	 * 
+	 * @param field
+	 *            The name of the field
+	 * @param weight
+	 */
+	public TermExpansion setFieldWeight(String field, double weight) {
+		fieldWeights.put(field, weight);
+		return this;
+	}
+
+	public double getFieldWeight(String field) {
+		Double weight = fieldWeights.get(field);
+		return weight == null ? 1 : weight;
+	}
+
+	/**
+	 * Visit the terms of all the fields of a document
+	 */
+	public void expand(StructuredDocument document, TermVisitor visitor) {
+		for (int f = 0; f < document.getNumberOfFields(); f++) {
+			expand(document.getFieldWords(f), getFieldWeight(document.getFieldName(f)), visitor);
+		}
+	}
+
+	/**
+	 * Visit the terms of a list of words, for example a query
+	 * 
+	 * @param words
+	 * @param weight
+	 *            The weight of each occurrence
+	 */
+	public void expand(List<String> words, double weight, TermVisitor visitor) {
+		if (maxN == 1) {
+			for (String w : words) {
+				visitor.visit(w.toLowerCase(), weight);
+			}
+			return;
+		}
+		String[] lower = new String[words.size()];
+		for (int i = 0; i < lower.length; i++) {
+			lower[i] = words.get(i).toLowerCase();
+		}
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < lower.length; i++) {
+			builder.setLength(0);
+			for (int n = 1; n <= maxN && i + n <= lower.length; n++) {
+				if (n > 1) {
+					builder.append(' ');
+				}
+				builder.append(lower[i + n - 1]);
+				if (n >= minN) {
+					visitor.visit(n == 1 ? lower[i] : builder.toString(), weight);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the n-grams and the weights of the fields
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeInt(minN);
+		out.writeInt(maxN);
+		out.writeInt(fieldWeights.size());
+		for (Map.Entry<String, Double> entry : fieldWeights.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeDouble(entry.getValue());
+		}
+	}
+
+	/**
+	 * Read an expansion written by {@link #write(DataOutput)}
+	 */
+	static TermExpansion read(DataInput in) throws IOException {
+		TermExpansion expansion = new TermExpansion().setNGrams(in.readInt(), in.readInt());
+		int fields = in.readInt();
+		for (int i = 0; i < fields; i++) {
+			expansion.setFieldWeight(in.readUTF(), in.readDouble());
+		}
+		return expansion;
+	}
+
+	/**
+	 * Get all different terms of some documents in order of appearance, reading
+	 * the documents only once
+	 */
+	public List<String> getDifferentTerms(Iterable<StructuredDocument> documents) {
+		final Map<String, Boolean> terms = new LinkedHashMap<String, Boolean>();
+		TermVisitor visitor = new TermVisitor() {
+			@Override
+			public void visit(String term, double weight) {
+				terms.put(term, Boolean.TRUE);
+			}
+		};
+		for (StructuredDocument document : documents) {
+			expand(document, visitor);
+		}
+		return new ArrayList<String>(terms.keySet());
+	}
+
+}
@@ -0,0 +1,50 @@
+package lsi4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bitset of the removed documents that can be read by the scan while documents
+ * are being removed
+ * 
+ * @author Jabier Martinez
+ */
+final class Tombstones {
+
+	private final AtomicLongArray words;
+	private final AtomicInteger count = new AtomicInteger();
+
+	Tombstones(int documents) {
+		words = new AtomicLongArray((documents + 63) >>> 6);
+	}
+
+	boolean isRemoved(int document) {
+		return (words.get(document >>> 6) & (1L << document)) != 0;
+	}
+
+	/**
+	 * @return true if the document was not already removed
+	 */
+	boolean remove(int document) {
+		int w = document >>> 6;
+		long bit = 1L << document;
+		while (true) {
+			long old = words.get(w);
+			if ((old & bit) != 0) {
+				return false;
+			}
+			if (words.compareAndSet(w, old, old | bit)) {
+				count.incrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return The number of removed documents
+	 */
+	int count() {
+		return count.get();
+	}
+
+}
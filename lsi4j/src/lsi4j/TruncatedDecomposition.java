@@ -0,0 +1,72 @@
+package lsi4j;
+
+import Jama.Matrix;
+
+/**
+ * The first k singular values and vectors of a term-document matrix, A_k =
+ * U_k*S_k*(V_k^T)
+ * 
+ * @author Jabier Martinez
+ */
+public class TruncatedDecomposition {
+
+	private final Matrix u;
+	private final double[] singularValues;
+	private final Matrix v;
+
+	/**
+	 * TruncatedDecomposition
+	 * 
+	 * @param u
+	 *            U_k, one row per term
+	 * @param singularValues
+	 *            The k singular values from the highest to the smallest
+	 * @param v
+	 *            V_k, one row per document
+	 */
+	public TruncatedDecomposition(Matrix u, double[] singularValues, Matrix v) {
+		this.u = u;
+		this.singularValues = singularValues;
+		this.v = v;
+	}
+
+	/**
+	 * @return U_k, one row per term
+	 */
+	public Matrix getU() {
+		return u;
+	}
+
+	/**
+	 * @return The singular values from the highest to the smallest
+	 */
+	public double[] getSingularValues() {
+		return singularValues;
+	}
+
+	/**
+	 * @return S_k as a diagonal matrix
+	 */
+	public Matrix getS() {
+		Matrix s = new Matrix(singularValues.length, singularValues.length);
+		for (int i = 0; i < singularValues.length; i++) {
+			s.set(i, i, singularValues[i]);
+		}
+		return s;
+	}
+
+	/**
+	 * @return V_k, one row per document
+	 */
+	public Matrix getV() {
+		return v;
+	}
+
+	/**
+	 * @return k
+	 */
+	public int getRank() {
+		return singularValues.length;
+	}
+
+}
@@ -0,0 +1,33 @@
+package lsi4j;
+
+/**
+ * The result of a query together with the version of the model that answered
+ * it
+ * 
+ * @author Jabier Martinez
+ */
+public class VersionedResult<T> {
+
+	private final T result;
+	private final long version;
+
+	public VersionedResult(T result, long version) {
+		this.result = result;
+		this.version = version;
+	}
+
+	/**
+	 * @return The result of the query
+	 */
+	public T getResult() {
+		return result;
+	}
+
+	/**
+	 * @return The version of the model
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+}
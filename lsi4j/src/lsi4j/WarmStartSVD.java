@@ -0,0 +1,202 @@
+package lsi4j;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import Jama.Matrix;
+import Jama.SingularValueDecomposition;
+
+/**
+ * Truncated SVD by subspace iteration that starts from the subspace of a
+ * previous model. When a corpus changes only a little, the U_k of the previous
+ * model (its rows aligned with the new terms through the term dictionary) is
+ * already close to the new one, so a few iterations are enough instead of
+ * starting from random vectors. Some random vectors are added to the start to
+ * find the directions of the new terms.
+ * 
+ * Each iteration makes two passes over the matrix, Z = (A^T)*Q and Y = A*V,
+ * and its memory is O((T+D)*l) with l = k + oversampling. The iterations stop
+ * when the residual ||A*v_i - s_i*u_i|| / s_1 of each of the k singular
+ * vectors is below the tolerance.
+ * 
+ * @author Jabier Martinez
+ */
+public class WarmStartSVD implements DecompositionStrategy {
+
+	private final LSI4J previous;
+	private int oversampling = 10;
+	private int maxIterations = 100;
+	private double tolerance = 1e-4;
+	private long seed = 0;
+
+	// Report of the last decomposition
+	private int iterations;
+	private double[] residuals = new double[0];
+
+	/**
+	 * WarmStartSVD
+	 * 
+	 * @param previous
+	 *            The model whose U_k is the start or null to start from random
+	 *            vectors
+	 */
+	public WarmStartSVD(LSI4J previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Extra random vectors in the subspace. Default is 10
+	 */
+	public WarmStartSVD setOversampling(int oversampling) {
+		this.oversampling = Math.max(0, oversampling);
+		return this;
+	}
+
+	/**
+	 * Maximum number of iterations. Default is 100
+	 */
+	public WarmStartSVD setMaxIterations(int maxIterations) {
+		this.maxIterations = Math.max(1, maxIterations);
+		return this;
+	}
+
+	/**
+	 * Maximum residual relative to the first singular value. Default is 1e-4
+	 */
+	public WarmStartSVD setTolerance(double tolerance) {
+		this.tolerance = tolerance;
+		return this;
+	}
+
+	/**
+	 * Seed of the random vectors so the decomposition is reproducible
+	 */
+	public WarmStartSVD setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * @return The model whose U_k is the start or null
+	 */
+	LSI4J getPrevious() {
+		return previous;
+	}
+
+	@Override
+	public String getName() {
+		return "WarmStart(p=" + oversampling + ",tol=" + tolerance + ")";
+	}
+
+	/**
+	 * Decompose a matrix with the same terms (rows) as the previous model
+	 */
+	@Override
+	public TruncatedDecomposition decompose(ColumnSource a, int k) throws IOException {
+		return decompose(a, previous == null ? null : previous.getTerms(), k);
+	}
+
+	/**
+	 * Decompose a matrix whose terms can be different from the ones of the
+	 * previous model
+	 * 
+	 * @param a
+	 *            The term-document matrix
+	 * @param terms
+	 *            The terms (rows) of the matrix in lowercase
+	 * @param k
+	 *            Number of singular values and vectors to compute
+	 * @return The truncated decomposition
+	 */
+	public TruncatedDecomposition decompose(ColumnSource a, List<String> terms, int k) throws IOException {
+		int rows = a.getRowDimension();
+		int documents = a.getColumnDimension();
+		k = Math.min(k, Math.min(rows, documents));
+		int l = Math.min(k + oversampling, Math.min(rows, documents));
+
+		// The first columns are the previous U_k, the others are random
+		Random random = new Random(seed);
+		double[][] start = new double[rows][l];
+		int warm = 0;
+		if (previous != null && terms != null) {
+			for (int t = 0; t < rows; t++) {
+				int id = previous.getTermId(terms.get(t));
+				if (id != -1) {
+					double[] u = previous.getTermVector(id);
+					warm = Math.min(u.length, l);
+					System.arraycopy(u, 0, start[t], 0, warm);
+				}
+			}
+		}
+		for (int t = 0; t < rows; t++) {
+			for (int i = warm; i < l; i++) {
+				start[t][i] = random.nextGaussian();
+			}
+		}
+		double[][] q = RandomizedSVD.orthonormalize(start);
+
+		Matrix u = null;
+		Matrix v = null;
+		double[] s = null;
+		residuals = new double[k];
+		for (iterations = 1; iterations <= maxIterations; iterations++) {
+			// (A^T)*Q = W*S*X^T so A ~ (Q*X)*S*W^T
+			double[][] z = RandomizedSVD.transposeTimes(a, q, documents, l);
+			SingularValueDecomposition svd = new Matrix(z, documents, l).svd();
+			v = svd.getU();
+			s = svd.getSingularValues();
+			u = new Matrix(q, rows, l).times(svd.getV());
+
+			// A*V is the residual and the next subspace
+			double[][] y = RandomizedSVD.times(a, v.getArray(), rows, l);
+			double[][] uArray = u.getArray();
+			double max = 0;
+			for (int i = 0; i < k; i++) {
+				double sum = 0;
+				for (int t = 0; t < rows; t++) {
+					double d = y[t][i] - s[i] * uArray[t][i];
+					sum += d * d;
+				}
+				residuals[i] = s[0] == 0 ? 0 : Math.sqrt(sum) / s[0];
+				max = Math.max(max, residuals[i]);
+			}
+			if (max <= tolerance || iterations == maxIterations) {
+				break;
+			}
+			q = RandomizedSVD.orthonormalize(y);
+		}
+
+		double[] singularValues = new double[k];
+		System.arraycopy(s, 0, singularValues, 0, k);
+		return new TruncatedDecomposition(u.getMatrix(0, rows - 1, 0, k - 1), singularValues,
+				v.getMatrix(0, documents - 1, 0, k - 1));
+	}
+
+	/**
+	 * @return The number of iterations of the last decomposition
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return The residual ||A*v_i - s_i*u_i|| / s_1 of each singular vector
+	 *         after the last decomposition
+	 */
+	public double[] getResiduals() {
+		return residuals.clone();
+	}
+
+	/**
+	 * @return The highest residual of the last decomposition
+	 */
+	public double getMaxResidual() {
+		double max = 0;
+		for (double residual : residuals) {
+			max = Math.max(max, residual);
+		}
+		return max;
+	}
+
+}
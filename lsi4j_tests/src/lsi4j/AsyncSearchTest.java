@@ -0,0 +1,136 @@
+package lsi4j;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Asynchronous searches in the Human Interfaces Example
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class AsyncSearchTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void sameAnswerAsBlockingSearch() throws Exception {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Search with and without deadline
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		AsyncLSI async = new AsyncLSI(lsiTechnique);
+		CompletableFuture<double[]> all = async.applyLSI(query, -1, TimeUnit.SECONDS);
+		CompletableFuture<List<ScoredDocument>> top = async.applyLSI(query, 1, null, 10, TimeUnit.SECONDS);
+
+		// Step 2 Same answers
+		assertArrayEquals(lsiTechnique.applyLSI(query), all.get(), 0.0);
+		assertEquals(2, top.get().get(0).getDocument());
+	}
+
+	@Test
+	void deadlineExceeded() throws Exception {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Search without time
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		AsyncLSI async = new AsyncLSI(lsiTechnique);
+		CompletableFuture<double[]> answer = async.applyLSI(query, 0, TimeUnit.SECONDS);
+
+		// Step 2 Timeout and the turn is given back
+		try {
+			answer.get();
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		assertEquals(Runtime.getRuntime().availableProcessors(), async.getAvailableScans());
+	}
+
+	@Test
+	void waitingSearchesDoNotTakeThreads() throws Exception {
+		// Step 0 Set Up the variables
+		setUp();
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		final AtomicInteger tasks = new AtomicInteger();
+		final ExecutorService pool = Executors.newCachedThreadPool();
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.incrementAndGet();
+				pool.execute(command);
+			}
+		};
+		AsyncLSI async = new AsyncLSI(lsiTechnique, executor, 1, 1);
+
+		// Step 1 A scan keeps the only turn until the latch is opened
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch latch = new CountDownLatch(1);
+		CompletableFuture<List<ScoredDocument>> first = async.applyLSI(query, 1, new DocumentFilter() {
+			@Override
+			public boolean accept(int document) {
+				started.countDown();
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return true;
+			}
+		}, -1, TimeUnit.SECONDS);
+		started.await();
+
+		// Step 2 The second search waits without a thread and the third one is
+		// rejected at once
+		async.setMaxAdmissionWait(1, TimeUnit.MINUTES);
+		CompletableFuture<double[]> second = async.applyLSI(query, -1, TimeUnit.SECONDS);
+		CompletableFuture<double[]> third = async.applyLSI(query, -1, TimeUnit.SECONDS);
+		assertEquals(1, async.getWaitingSearches());
+		assertEquals(1, tasks.get());
+		try {
+			third.get();
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+
+		// Step 3 The waiting search runs when the turn is given back
+		latch.countDown();
+		assertEquals(2, first.get().get(0).getDocument());
+		assertArrayEquals(lsiTechnique.applyLSI(query), second.get(), 0.0);
+		assertEquals(2, tasks.get());
+		assertEquals(0, async.getWaitingSearches());
+		assertEquals(1, async.getAvailableScans());
+		pool.shutdown();
+	}
+
+}
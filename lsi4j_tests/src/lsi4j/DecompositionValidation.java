@@ -0,0 +1,239 @@
+package lsi4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import Jama.Matrix;
+
+/**
+ * Compares a decomposition strategy with the SVD of Jama on a matrix with a
+ * known spectrum: error of the singular values, largest angle between the
+ * subspaces of U_k and of V_k, overlap of the top documents of random queries
+ * and time. Run it as a Java application to print the numbers of the available
+ * strategies.
+ * 
+ * @author Jabier Martinez
+ */
+public class DecompositionValidation {
+
+	/**
+	 * The numbers of one strategy
+	 */
+	public static class Result {
+
+		String strategy;
+
+		// Ratio of non zero values of the matrix
+		double density;
+
+		// Time to decompose in milliseconds
+		double millis;
+
+		// Maximum of |s_i - known s_i| / known s_i
+		double singularValueError;
+
+		// Largest principal angles (radians) with the subspaces of Jama
+		double angleU;
+		double angleV;
+
+		// Average ratio of the top documents that are also in the top of Jama
+		double topOverlap;
+
+		@Override
+		public String toString() {
+			return String.format(
+					"%-24s density %.3f %10.2f ms  sv error %.2e  angle U %.2e  angle V %.2e  top overlap %.3f",
+					strategy, density, millis, singularValueError, angleU, angleV, topOverlap);
+		}
+	}
+
+	private final Matrix a;
+	private final double density;
+	private final double[] spectrum;
+	private final int k;
+	private final TruncatedDecomposition reference;
+	private final LSI4J referenceModel;
+	private final List<String> terms;
+
+	// Random queries as term ids
+	private final List<int[]> queries = new ArrayList<int[]>();
+
+	// Documents that have a part in the first k singular vectors. The cosine of
+	// the others is only numerical noise
+	private final DocumentFilter rankedDocuments;
+
+	// Below this ratio of the largest norm a row of U_k or V_k is noise
+	private static final double NOISE = 1e-6;
+
+	// Minimum cosine of a top document of Jama to be compared
+	private static final double RELATED = 0.01;
+
+	/**
+	 * DecompositionValidation
+	 * 
+	 * @param a
+	 *            The matrix
+	 * @param spectrum
+	 *            Its known singular values
+	 * @param k
+	 *            Number of singular values and vectors to compare
+	 * @param numberOfQueries
+	 *            Random queries of three terms to compare the rankings
+	 * @param seed
+	 *            To create the same queries
+	 */
+	public DecompositionValidation(Matrix a, double[] spectrum, int k, int numberOfQueries, long seed)
+			throws IOException {
+		this.a = a;
+		this.density = KnownSpectrumMatrix.density(a);
+		this.spectrum = spectrum;
+		this.k = k;
+		this.reference = new JamaDecomposition().decompose(new MatrixColumns(a), k);
+		this.terms = new ArrayList<String>();
+		for (int i = 0; i < a.getRowDimension(); i++) {
+			terms.add("t" + i);
+		}
+		this.referenceModel = new LSI4J(terms, reference);
+		this.rankedDocuments = DocumentFilter.of(significantRows(reference.getV()));
+
+		// The queries only use terms that have a part in the first k singular vectors
+		BitSet significantTerms = significantRows(reference.getU());
+		int[] candidates = new int[significantTerms.cardinality()];
+		int c = 0;
+		for (int t = significantTerms.nextSetBit(0); t >= 0; t = significantTerms.nextSetBit(t + 1)) {
+			candidates[c++] = t;
+		}
+		Random random = new Random(seed);
+		for (int n = 0; n < numberOfQueries; n++) {
+			queries.add(new int[] { candidates[random.nextInt(c)], candidates[random.nextInt(c)],
+					candidates[random.nextInt(c)] });
+		}
+	}
+
+	/**
+	 * Decompose the matrix with a strategy and compare it with Jama
+	 * 
+	 * @param strategy
+	 * @param top
+	 *            Number of top documents compared for each query
+	 */
+	public Result validate(DecompositionStrategy strategy, int top) throws IOException {
+		Result result = new Result();
+		result.strategy = strategy.getName();
+		result.density = density;
+
+		long start = System.nanoTime();
+		TruncatedDecomposition decomposition = strategy.decompose(new MatrixColumns(a), k);
+		result.millis = (System.nanoTime() - start) / 1e6;
+
+		double[] s = decomposition.getSingularValues();
+		for (int i = 0; i < k; i++) {
+			result.singularValueError = Math.max(result.singularValueError,
+					Math.abs(s[i] - spectrum[i]) / spectrum[i]);
+		}
+		result.angleU = largestAngle(reference.getU(), decomposition.getU());
+		result.angleV = largestAngle(reference.getV(), decomposition.getV());
+
+		// The signs of the singular vectors are arbitrary but the rounding of the
+		// cosine is not symmetric, so use the signs of the reference
+		LSI4J model = new LSI4J(terms, alignSigns(decomposition));
+		float[] weights = { 1f, 1f, 1f };
+		double overlap = 0;
+		for (int[] query : queries) {
+			Set<Integer> expected = new HashSet<Integer>();
+			for (ScoredDocument d : referenceModel.applyLSI(query, weights, top, rankedDocuments)) {
+				// Documents that are almost orthogonal to the query are ordered by noise
+				if (d.getSimilarity() > RELATED) {
+					expected.add(d.getDocument());
+				}
+			}
+			int common = 0;
+			for (ScoredDocument d : model.applyLSI(query, weights, top, rankedDocuments)) {
+				if (expected.contains(d.getDocument())) {
+					common++;
+				}
+			}
+			overlap += expected.isEmpty() ? 1 : common / (double) expected.size();
+		}
+		result.topOverlap = queries.isEmpty() ? 1 : overlap / queries.size();
+		return result;
+	}
+
+	/**
+	 * Rows whose norm is not negligible compared with the largest one
+	 */
+	private static BitSet significantRows(Matrix x) {
+		double[] norms = new double[x.getRowDimension()];
+		double max = 0;
+		for (int i = 0; i < norms.length; i++) {
+			for (int j = 0; j < x.getColumnDimension(); j++) {
+				norms[i] += x.get(i, j) * x.get(i, j);
+			}
+			norms[i] = Math.sqrt(norms[i]);
+			max = Math.max(max, norms[i]);
+		}
+		BitSet significant = new BitSet(norms.length);
+		for (int i = 0; i < norms.length; i++) {
+			if (norms[i] > NOISE * max) {
+				significant.set(i);
+			}
+		}
+		return significant;
+	}
+
+	/**
+	 * Flip the pairs of singular vectors that point in the opposite direction of
+	 * the ones of the reference
+	 */
+	private TruncatedDecomposition alignSigns(TruncatedDecomposition decomposition) {
+		Matrix u = decomposition.getU().copy();
+		Matrix v = decomposition.getV().copy();
+		for (int i = 0; i < decomposition.getRank(); i++) {
+			double dot = 0;
+			for (int t = 0; t < u.getRowDimension(); t++) {
+				dot += u.get(t, i) * reference.getU().get(t, i);
+			}
+			if (dot < 0) {
+				for (int t = 0; t < u.getRowDimension(); t++) {
+					u.set(t, i, -u.get(t, i));
+				}
+				for (int d = 0; d < v.getRowDimension(); d++) {
+					v.set(d, i, -v.get(d, i));
+				}
+			}
+		}
+		return new TruncatedDecomposition(u, decomposition.getSingularValues(), v);
+	}
+
+	/**
+	 * Largest principal angle between the subspaces spanned by the columns of two
+	 * matrices with orthonormal columns
+	 */
+	public static double largestAngle(Matrix x, Matrix y) {
+		double[] cosines = x.transpose().times(y).svd().getSingularValues();
+		double smallest = Math.min(1, cosines[cosines.length - 1]);
+		return Math.acos(smallest);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int k = 20;
+		int[][] sizes = { { 400, 300 }, { 800, 600 }, { 1200, 800 } };
+		for (int[] size : sizes) {
+			double[] spectrum = KnownSpectrumMatrix.decayingSpectrum(Math.min(size[0], size[1]), 0.9);
+			Matrix a = KnownSpectrumMatrix.create(size[0], size[1], spectrum, 10, 1);
+			System.out.println(String.format("%d x %d, density %.3f, k = %d", size[0], size[1],
+					KnownSpectrumMatrix.density(a), k));
+			DecompositionValidation validation = new DecompositionValidation(a, spectrum, k, 100, 1);
+			System.out.println(validation.validate(new JamaDecomposition(), 10));
+			System.out.println(validation.validate(new RandomizedSVD().setPowerIterations(1), 10));
+			System.out.println(validation.validate(new RandomizedSVD(), 10));
+			System.out.println(validation.validate(new RandomizedSVD().setPowerIterations(4), 10));
+		}
+	}
+
+}
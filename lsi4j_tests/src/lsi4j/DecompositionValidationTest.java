@@ -0,0 +1,83 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+import Jama.Matrix;
+
+/**
+ * Truncated decompositions of a matrix with a known spectrum
+ * 
+ * @author Jabier Martinez
+ */
+class DecompositionValidationTest {
+
+	// Number of singular values and vectors
+	private static int k;
+
+	// Known singular values
+	private static double[] spectrum;
+
+	// Validation against Jama
+	private static DecompositionValidation validation;
+
+	@Before
+	public void setUp() throws Exception {
+		k = 10;
+		spectrum = KnownSpectrumMatrix.decayingSpectrum(150, 0.8);
+		Matrix a = KnownSpectrumMatrix.create(200, 150, spectrum, 5, 1);
+		validation = new DecompositionValidation(a, spectrum, k, 50, 1);
+	}
+
+	@Test
+	void known() throws Exception {
+		// Step 0 Set up
+		setUp();
+
+		// Step 1 Jama finds the spectrum of the matrix
+		DecompositionValidation.Result jama = validation.validate(new JamaDecomposition(), 10);
+		assertTrue(jama.singularValueError < 1e-9);
+		assertEquals(0, jama.angleU, 1e-6);
+		assertEquals(0, jama.angleV, 1e-6);
+		assertEquals(1, jama.topOverlap, 1e-9);
+	}
+
+	@Test
+	void sparse() throws Exception {
+		// Step 0 Set up
+		setUp();
+
+		// Step 1 Groups of 5 singular values leave about 1 value of 30 non zero
+		DecompositionValidation.Result jama = validation.validate(new JamaDecomposition(), 10);
+		assertTrue(jama.density < 0.05);
+		assertTrue(jama.density > 0);
+
+		// Step 2 The singular values of a sparser matrix are still exact
+		double[] sparseSpectrum = KnownSpectrumMatrix.decayingSpectrum(150, 0.9);
+		Matrix a = KnownSpectrumMatrix.create(200, 150, sparseSpectrum, 1, 2);
+		assertTrue(KnownSpectrumMatrix.density(a) < 0.01);
+		double[] s = a.svd().getSingularValues();
+		for (int i = 0; i < sparseSpectrum.length; i++) {
+			assertEquals(sparseSpectrum[i], s[i], 1e-9 * sparseSpectrum[0]);
+		}
+	}
+
+	@Test
+	void randomized() throws Exception {
+		// Step 0 Set up
+		setUp();
+
+		// Step 1 More power iterations give a more accurate decomposition
+		DecompositionValidation.Result few = validation.validate(new RandomizedSVD().setPowerIterations(0), 10);
+		DecompositionValidation.Result more = validation.validate(new RandomizedSVD().setPowerIterations(4), 10);
+		assertTrue(more.singularValueError < few.singularValueError);
+		assertTrue(more.singularValueError < 1e-6);
+		assertTrue(more.angleU < 1e-3);
+		assertTrue(more.angleV < 1e-3);
+		assertTrue(more.topOverlap > 0.99);
+	}
+
+}
@@ -0,0 +1,73 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Search with filters on the attributes of the documents of the Human
+ * Interfaces Example
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class FilteredSearchTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void filterByAttribute() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 The documents of tenant 2 are the odd ones
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		double[] all = lsiTechnique.applyLSI(query);
+		DocumentAttributes attributes = lsiTechnique.getDocumentAttributes();
+		for (int i = 0; i < documents.size(); i++) {
+			attributes.setAttribute("tenant", i, i % 2 == 0 ? 1 : 2);
+		}
+		DocumentFilter tenant2 = attributes.equalTo("tenant", 2);
+
+		// Step 2 Only the documents of the tenant are scored
+		List<ScoredDocument> top = lsiTechnique.applyLSI(query, 2, tenant2);
+		assertEquals(2, top.size());
+		assertEquals(3, top.get(0).getDocument());
+		assertEquals(1, top.get(1).getDocument());
+		double[] answer = lsiTechnique.applyLSI(query, tenant2);
+		assertEquals(-1, answer[0], 0.0);
+		assertEquals(all[1], answer[1], 0.0);
+	}
+
+	@Test
+	void selectiveFilter() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Accept only one document so only its id is visited
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		BitSet accepted = new BitSet();
+		accepted.set(7);
+		List<ScoredDocument> top = lsiTechnique.applyLSI(query, 3, DocumentFilter.of(accepted));
+
+		// Step 2 The only document
+		assertEquals(1, top.size());
+		assertEquals(7, top.get(0).getDocument());
+	}
+
+}
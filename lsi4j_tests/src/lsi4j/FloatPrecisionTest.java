@@ -0,0 +1,116 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The reduced matrices stored in float give the same rankings as in double in
+ * the examples
+ * 
+ * @author Jabier Martinez
+ */
+class FloatPrecisionTest {
+
+	// Set queries
+	private static List<List<String>> queries;
+
+	// Set corpora
+	private static List<List<List<String>>> corpora;
+
+	@Before
+	public void setUp() {
+		queries = new ArrayList<List<String>>();
+		corpora = new ArrayList<List<List<String>>>();
+
+		// Golden Truck Example
+		queries.add(Arrays.asList("gold", "silver", "truck"));
+		List<List<String>> goldenTruck = new ArrayList<List<String>>();
+		goldenTruck.add(Arrays.asList("shipment", "of", "gold", "damaged", "in", "a", "fire"));
+		goldenTruck.add(Arrays.asList("delivery", "of", "silver", "arrived", "in", "a", "silver", "truck"));
+		goldenTruck.add(Arrays.asList("shipment", "of", "gold", "arrived", "in", "a", "truck"));
+		corpora.add(goldenTruck);
+
+		// Human Interfaces Example
+		queries.add(HumanInterfacesExample.query());
+		List<List<String>> humanInterfaces = HumanInterfacesExample.documents();
+		corpora.add(humanInterfaces);
+
+		// Controlabillity Example
+		queries.add(Arrays.asList("feedback", "controller"));
+		List<List<String>> controlabillity = new ArrayList<List<String>>();
+		controlabillity.add(Arrays.asList("controllability", "observability", "realization"));
+		controlabillity.add(Arrays.asList("controllability", "feedback", "controller", "observer"));
+		controlabillity.add(Arrays.asList("realization", "observer"));
+		controlabillity.add(new ArrayList<String>());
+		controlabillity.add(Arrays.asList("controllability", "observability", "realization", "controller",
+				"observer", "transferfunction", "polynomial", "matrices"));
+		controlabillity.add(Arrays.asList("observability", "feedback", "controller", "observer",
+				"transferfunction"));
+		controlabillity.add(Arrays.asList("realization", "polynomial", "matrices"));
+		controlabillity.add(Arrays.asList("controllability", "observability", "matrices"));
+		corpora.add(controlabillity);
+	}
+
+	@Test
+	void sameRankings() {
+		// Step 0 Set up
+		setUp();
+
+		for (int c = 0; c < corpora.size(); c++) {
+			List<List<String>> documents = corpora.get(c);
+
+			// Step 1 Same model stored in double and in float
+			LSI4J doubleModel = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE,
+					LSI4J.PRECISION_DOUBLE);
+			LSI4J floatModel = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE,
+					LSI4J.PRECISION_FLOAT);
+
+			// Step 2 Same ranking and almost the same similarities
+			List<ScoredDocument> expected = doubleModel.applyLSI(queries.get(c), documents.size());
+			List<ScoredDocument> answer = floatModel.applyLSI(queries.get(c), documents.size());
+			assertEquals(expected.size(), answer.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getDocument(), answer.get(i).getDocument());
+				assertEquals(expected.get(i).getSimilarity(), answer.get(i).getSimilarity(), 1e-5);
+			}
+
+			// Step 3 Same similar documents in the latent space
+			List<ScoredDocument> similar = doubleModel.getSimilarDocuments(0, documents.size());
+			List<ScoredDocument> floatSimilar = floatModel.getSimilarDocuments(0, documents.size());
+			for (int i = 0; i < similar.size(); i++) {
+				assertEquals(similar.get(i).getDocument(), floatSimilar.get(i).getDocument());
+			}
+		}
+	}
+
+	@Test
+	void floatColumns() throws Exception {
+		// Step 0 Set up
+		setUp();
+		List<List<String>> documents = corpora.get(1);
+		List<String> terms = SparseMatrixFile.getDifferentTerms(documents);
+
+		// Step 1 Decompose the matrix stored in float
+		FloatColumns matrix = FloatColumns.of(terms, documents);
+		assertEquals(terms.size(), matrix.getRowDimension());
+		assertEquals(documents.size(), matrix.getColumnDimension());
+		RandomizedSVD randomized = new RandomizedSVD().setPowerIterations(4);
+		LSI4J floatModel = new LSI4J(terms, randomized.decompose(matrix, 2), LSI4J.PRECISION_FLOAT);
+
+		// Step 2 Same ranking as the Jama model
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+		List<ScoredDocument> expected = lsi.applyLSI(queries.get(1), 3);
+		List<ScoredDocument> answer = floatModel.applyLSI(queries.get(1), 3);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getDocument(), answer.get(i).getDocument());
+			assertEquals(expected.get(i).getSimilarity(), answer.get(i).getSimilarity(), 1e-4);
+		}
+	}
+
+}
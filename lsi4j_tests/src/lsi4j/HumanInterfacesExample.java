@@ -0,0 +1,43 @@
+package lsi4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Query and documents of the Human Interfaces Example shared by the tests
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class HumanInterfacesExample {
+
+	private HumanInterfacesExample() {
+	}
+
+	/**
+	 * @return The query human computer interaction
+	 */
+	static List<String> query() {
+		return Arrays.asList("human", "computer", "interaction");
+	}
+
+	/**
+	 * @return A new list with the nine documents
+	 */
+	static List<List<String>> documents() {
+		List<List<String>> documents = new ArrayList<List<String>>();
+		documents.add(Arrays.asList("human", "interface", "computer"));
+		documents.add(Arrays.asList("computer", "user", "system", "response", "time", "survey"));
+		documents.add(Arrays.asList("interface", "user", "system", "EPS"));
+		documents.add(Arrays.asList("human", "system", "system", "EPS"));
+		documents.add(Arrays.asList("user", "response", "time"));
+		documents.add(Arrays.asList("tree"));
+		documents.add(Arrays.asList("tree", "graph"));
+		documents.add(Arrays.asList("tree", "graph", "minors"));
+		documents.add(Arrays.asList("survey", "graph", "minors"));
+		return documents;
+	}
+
+}
@@ -0,0 +1,133 @@
+package lsi4j;
+
+import java.util.Random;
+
+import Jama.Matrix;
+
+/**
+ * Random sparse term-document matrices whose singular values are known. The
+ * singular values are split in groups in random order and each group gets its
+ * own rows and columns, a dense block Q*S*W^T with random orthonormal Q and W.
+ * The matrix is block diagonal so its singular values are exactly the ones of
+ * the blocks, then the rows and columns are permuted. With G groups the
+ * density is about 1/G, so smaller groups make sparser matrices.
+ * 
+ * @author Jabier Martinez
+ */
+public class KnownSpectrumMatrix {
+
+	private KnownSpectrumMatrix() {
+	}
+
+	/**
+	 * Singular values from 100 decreasing geometrically
+	 * 
+	 * @param n
+	 *            Number of singular values
+	 * @param decay
+	 *            Ratio between two consecutive singular values
+	 */
+	public static double[] decayingSpectrum(int n, double decay) {
+		double[] spectrum = new double[n];
+		double value = 100;
+		for (int i = 0; i < n; i++) {
+			spectrum[i] = value;
+			value *= decay;
+		}
+		return spectrum;
+	}
+
+	/**
+	 * Create a matrix
+	 * 
+	 * @param terms
+	 *            Number of rows
+	 * @param documents
+	 *            Number of columns
+	 * @param spectrum
+	 *            The singular values (at most min(terms, documents))
+	 * @param groupSize
+	 *            Number of singular values of each block
+	 * @param seed
+	 *            To create always the same matrix
+	 */
+	public static Matrix create(int terms, int documents, double[] spectrum, int groupSize, long seed) {
+		if (spectrum.length > Math.min(terms, documents)) {
+			throw new IllegalArgumentException("At most " + Math.min(terms, documents) + " singular values");
+		}
+		Random random = new Random(seed);
+		double[][] a = new double[terms][documents];
+		int groups = Math.max(1, (spectrum.length + groupSize - 1) / Math.max(1, groupSize));
+		int[] values = permutation(spectrum.length, random);
+		for (int g = 0; g < groups; g++) {
+			// The values, rows and columns of the group, split as evenly as possible
+			int valueFrom = spectrum.length * g / groups;
+			int valueTo = spectrum.length * (g + 1) / groups;
+			int rowFrom = terms * g / groups;
+			int rowTo = terms * (g + 1) / groups;
+			int columnFrom = documents * g / groups;
+			int columnTo = documents * (g + 1) / groups;
+			int size = valueTo - valueFrom;
+			if (size == 0) {
+				continue;
+			}
+			double[][] q = orthonormal(rowTo - rowFrom, size, random);
+			double[][] w = orthonormal(columnTo - columnFrom, size, random);
+			for (int i = rowFrom; i < rowTo; i++) {
+				for (int j = columnFrom; j < columnTo; j++) {
+					double sum = 0;
+					for (int l = 0; l < size; l++) {
+						sum += q[i - rowFrom][l] * spectrum[values[valueFrom + l]] * w[j - columnFrom][l];
+					}
+					a[i][j] = sum;
+				}
+			}
+		}
+		int[] rows = permutation(terms, random);
+		int[] columns = permutation(documents, random);
+		return new Matrix(a).getMatrix(rows, columns);
+	}
+
+	/**
+	 * @return A random matrix with orthonormal columns
+	 */
+	private static double[][] orthonormal(int rows, int columns, Random random) {
+		double[][] gaussian = new double[rows][columns];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				gaussian[i][j] = random.nextGaussian();
+			}
+		}
+		return new Matrix(gaussian).qr().getQ().getArray();
+	}
+
+	/**
+	 * @return The ratio of non zero values
+	 */
+	public static double density(Matrix a) {
+		int nonZeros = 0;
+		for (double[] row : a.getArray()) {
+			for (double value : row) {
+				if (value != 0) {
+					nonZeros++;
+				}
+			}
+		}
+		return nonZeros / ((double) a.getRowDimension() * a.getColumnDimension());
+	}
+
+	private static int[] permutation(int n, Random random) {
+		int[] p = new int[n];
+		for (int i = 0; i < n; i++) {
+			p[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = p[i];
+			p[i] = p[j];
+			p[j] = tmp;
+		}
+		return p;
+	}
+
+}
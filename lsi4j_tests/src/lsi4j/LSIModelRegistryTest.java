@@ -0,0 +1,167 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Serialized models read when they are queried in the Human Interfaces Example
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class LSIModelRegistryTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	private static LSI4J copy(LSI4J lsi) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		lsi.writeTo(out);
+		return LSI4J.readFrom(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	private static void assertSameScores(LSI4J expected, LSI4J actual) {
+		double[] expectedScores = expected.applyLSI(query);
+		double[] scores = actual.applyLSI(query);
+		assertEquals(expectedScores.length, scores.length);
+		for (int d = 0; d < scores.length; d++) {
+			assertEquals(expectedScores[d], scores[d], 0);
+		}
+	}
+
+	@Test
+	void serialization() throws IOException {
+		// Step 0 Set up
+		setUp();
+
+		// Step 1 Same results after reading the model, in both precisions
+		for (int precision : new int[] { LSI4J.PRECISION_DOUBLE, LSI4J.PRECISION_FLOAT }) {
+			LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE, precision);
+			lsi.removeDocument(3);
+			LSI4J read = copy(lsi);
+			assertEquals(lsi.getTerms(), read.getTerms());
+			assertEquals(lsi.getResidentBytes(), read.getResidentBytes());
+			assertTrue(read.isRemoved(3));
+			assertSameScores(lsi, read);
+		}
+
+		// Step 2 The queries are still expanded
+		List<StructuredDocument> structured = new ArrayList<StructuredDocument>();
+		for (List<String> document : documents) {
+			structured.add(StructuredDocument.of(document));
+		}
+		LSI4J lsi = new LSI4J(structured, new TermExpansion().setNGrams(1, 2), LSI4J.APPROXIMATION_K_VALUE, 2,
+				LSI4J.PRECISION_DOUBLE);
+		LSI4J read = copy(lsi);
+		assertTrue(read.getTermExpansion() != null);
+		assertEquals(lsi.getTermId("human interface"), read.getTermId("human interface"));
+		assertSameScores(lsi, read);
+	}
+
+	@Test
+	void lazy() throws IOException {
+		// Step 0 Set up
+		setUp();
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+		LSIModelRegistry registry = new LSIModelRegistry(Long.MAX_VALUE);
+		registry.register("a", lsi);
+		registry.register("b", lsi);
+
+		// Step 1 Only the serialized models are kept
+		assertFalse(registry.isResident("a"));
+		assertEquals(0, registry.getResidentBytes("a"));
+		assertTrue(registry.getSerializedBytes("a") > 0);
+
+		// Step 2 The first query reads the model
+		assertSameScores(lsi, registry.getModel("a"));
+		assertTrue(registry.isResident("a"));
+		assertFalse(registry.isResident("b"));
+		assertEquals(lsi.getResidentBytes(), registry.getResidentBytes("a"));
+		assertEquals(registry.getResidentBytes("a"), registry.getResidentBytes());
+		registry.applyLSI("a", query);
+		assertEquals(1, registry.getLoads());
+	}
+
+	@Test
+	void leastRecentlyUsed() throws IOException {
+		// Step 0 Set up
+		setUp();
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+		long bytes = lsi.getResidentBytes();
+		// Two models fit in the budget
+		LSIModelRegistry registry = new LSIModelRegistry(bytes * 5 / 2);
+		registry.register("a", lsi);
+		registry.register("b", lsi);
+		registry.register("c", lsi);
+
+		// Step 1 The third model releases the first one
+		registry.applyLSI("a", query);
+		registry.applyLSI("b", query);
+		registry.applyLSI("c", query);
+		assertEquals(Arrays.asList("b", "c"), registry.getResidentModels());
+		assertEquals(0, registry.getResidentBytes("a"));
+		assertEquals(2 * bytes, registry.getResidentBytes());
+
+		// Step 2 b is used again so c is released
+		registry.applyLSI("b", query);
+		registry.applyLSI("a", query);
+		assertEquals(Arrays.asList("b", "a"), registry.getResidentModels());
+		assertEquals(4, registry.getLoads());
+		assertEquals(2, registry.getEvictions());
+
+		// Step 3 A smaller budget keeps at least the model that is queried
+		registry.setMemoryBudget(0);
+		registry.applyLSI("c", query);
+		assertEquals(Arrays.asList("c"), registry.getResidentModels());
+	}
+
+	@Test
+	void notAModel() throws IOException {
+		// Step 0 Set up
+		setUp();
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+		Path file = Files.createTempFile("lsi4j", ".matrix");
+		try {
+			SparseMatrixFile.write(file, lsi.getTerms(), documents);
+
+			// Step 1 A term-document matrix is not read as a model
+			InputStream in = Files.newInputStream(file);
+			try {
+				LSI4J.readFrom(in);
+				fail("A matrix was read as a model");
+			} catch (IOException e) {
+				assertEquals("Not a LSI4J model", e.getMessage());
+			} finally {
+				in.close();
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
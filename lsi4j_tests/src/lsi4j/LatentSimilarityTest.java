@@ -0,0 +1,88 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Document to document and term to term similarities with the Human Interfaces
+ * Example
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class LatentSimilarityTest {
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void similarDocuments() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 More like the first human computer interaction and the first graph
+		// document
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		List<ScoredDocument> c1 = lsiTechnique.getSimilarDocuments(0, 3);
+		List<ScoredDocument> m1 = lsiTechnique.getSimilarDocuments(5, 3);
+
+		// Step 2 The documents of the same topic
+		assertEquals(3, c1.size());
+		assertEquals(2, c1.get(0).getDocument());
+		assertEquals(3, c1.get(1).getDocument());
+		assertEquals(1, c1.get(2).getDocument());
+		assertEquals(6, m1.get(0).getDocument());
+		assertEquals(7, m1.get(1).getDocument());
+		assertEquals(8, m1.get(2).getDocument());
+	}
+
+	@Test
+	void similarTerms() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Related terms
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		List<ScoredTerm> tree = lsiTechnique.getSimilarTerms("tree", 2);
+
+		// Step 2 Graph and minors
+		assertEquals(2, tree.size());
+		assertEquals("graph", tree.get(0).getTerm());
+		assertEquals("minors", tree.get(1).getTerm());
+		assertTrue(lsiTechnique.getSimilarTerms("unknown", 2).isEmpty());
+	}
+
+	@Test
+	void similarDocumentPairs() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Join in one block and in blocks of two documents
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		List<SimilarPair> expected = lsiTechnique.getSimilarDocumentPairs(0.99);
+		lsiTechnique.setScoringBlockSize(2);
+		List<SimilarPair> pairs = lsiTechnique.getSimilarDocumentPairs(0.99);
+
+		// Step 2 Same pairs, the most similar are the first and the third documents
+		assertEquals(7, expected.size());
+		assertEquals(expected.size(), pairs.size());
+		for (int i = 0; i < pairs.size(); i++) {
+			assertEquals(expected.get(i).getFirst(), pairs.get(i).getFirst());
+			assertEquals(expected.get(i).getSecond(), pairs.get(i).getSecond());
+		}
+		assertEquals(0, pairs.get(0).getFirst());
+		assertEquals(2, pairs.get(0).getSecond());
+	}
+
+}
@@ -0,0 +1,131 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rebuild of the model of the Human Interfaces Example while it is used
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class ModelHolderTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void rebuildWhileQuerying() {
+		// Step 0 Set Up the variables
+		setUp();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		LSIModelHolder holder = new LSIModelHolder(new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0), executor);
+		VersionedResult<double[]> before = holder.applyLSI(query);
+
+		// Step 1 A query is running with the first version while a model with the
+		// first five documents is published
+		ModelSnapshot running = holder.acquire();
+		long version = holder.rebuild(documents.subList(0, 5), LSI4J.APPROXIMATION_K_VALUE, 2.0).join();
+		executor.shutdown();
+
+		// Step 2 The running query still has its model
+		assertEquals(1, running.getVersion());
+		assertFalse(running.isRetired());
+		double[] answer = running.getModel().applyLSI(query);
+		assertEquals(before.getResult()[0], answer[0], 0.0);
+
+		// Step 3 The new queries use the new model
+		assertEquals(2, version);
+		VersionedResult<double[]> after = holder.applyLSI(query);
+		assertEquals(2, after.getVersion());
+		assertEquals(5, after.getResult().length);
+
+		// Step 4 The first version is released with the last query
+		running.close();
+		assertTrue(running.isRetired());
+		assertNull(running.getModel());
+		ModelSnapshot current = holder.acquire();
+		assertNotNull(current.getModel());
+		current.close();
+	}
+
+	@Test
+	void closeTwice() {
+		// Step 0 Set Up the variables
+		setUp();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		LSIModelHolder holder = new LSIModelHolder(new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0), executor);
+		executor.shutdown();
+
+		// Step 1 A snapshot closed twice releases only its own reference
+		ModelSnapshot snapshot = holder.acquire();
+		snapshot.close();
+		snapshot.close();
+		assertFalse(snapshot.isRetired());
+
+		// Step 2 The current version can still be acquired
+		ModelSnapshot current = holder.acquire();
+		assertEquals(1, current.getVersion());
+		assertNotNull(current.getModel());
+		current.close();
+		assertNotNull(holder.applyLSI(query).getResult());
+	}
+
+	@Test
+	void concurrentPublish() throws Exception {
+		// Step 0 Set Up the variables
+		setUp();
+		final LSI4J model = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final LSIModelHolder holder = new LSIModelHolder(model, executor);
+		executor.shutdown();
+		ExecutorService publishers = Executors.newFixedThreadPool(4);
+
+		// Step 1 Publish from several threads
+		List<Future<Long>> versions = new ArrayList<Future<Long>>();
+		for (int i = 0; i < 200; i++) {
+			versions.add(publishers.submit(new Callable<Long>() {
+				@Override
+				public Long call() {
+					return holder.publish(model);
+				}
+			}));
+		}
+		long last = 0;
+		for (Future<Long> version : versions) {
+			last = Math.max(last, version.get());
+		}
+		publishers.shutdown();
+
+		// Step 2 The current version is the last one published
+		assertEquals(201, last);
+		assertEquals(last, holder.getVersion());
+		ModelSnapshot current = holder.acquire();
+		assertNotNull(current.getModel());
+		current.close();
+	}
+
+}
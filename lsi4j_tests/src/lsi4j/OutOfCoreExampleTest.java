@@ -0,0 +1,108 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Human Interfaces Example decomposed from a matrix file with the randomized
+ * SVD
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class OutOfCoreExampleTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void randomizedSVDFromFile() throws IOException {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Write the matrix and decompose it reading the file
+		Path file = Files.createTempFile("lsi4j", ".matrix");
+		List<String> terms = SparseMatrixFile.getDifferentTerms(documents);
+		SparseMatrixFile.write(file, terms, documents);
+		LSI4J outOfCore;
+		SparseMatrixFile matrix = SparseMatrixFile.open(file);
+		try {
+			assertEquals(12, matrix.getRowDimension());
+			assertEquals(9, matrix.getColumnDimension());
+			outOfCore = new LSI4J(terms, new RandomizedSVD().decompose(matrix, 2));
+		} finally {
+			matrix.close();
+			Files.delete(file);
+		}
+
+		// Step 2 Same similarities as with the full decomposition
+		LSI4J inMemory = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		double[] expected = inMemory.applyLSI(query);
+		double[] answer = outOfCore.applyLSI(query);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], answer[i], 0.0001);
+		}
+	}
+
+	@Test
+	void failedWrite() throws IOException {
+		// Step 0 Set Up the variables
+		setUp();
+		final List<String> terms = SparseMatrixFile.getDifferentTerms(documents);
+		Path file = Files.createTempFile("lsi4j", ".matrix");
+
+		// Step 1 The documents fail after some of them were written
+		Iterable<List<String>> failing = new Iterable<List<String>>() {
+			@Override
+			public Iterator<List<String>> iterator() {
+				final Iterator<List<String>> iterator = documents.iterator();
+				return new Iterator<List<String>>() {
+					int read = 0;
+
+					@Override
+					public boolean hasNext() {
+						return true;
+					}
+
+					@Override
+					public List<String> next() {
+						if (++read > 5) {
+							throw new IllegalStateException("Document not available");
+						}
+						return iterator.next();
+					}
+				};
+			}
+		};
+		try {
+			SparseMatrixFile.write(file, terms, failing);
+			fail("The documents did not fail");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		// Step 2 There is no file with only some documents
+		assertFalse(Files.exists(file));
+	}
+
+}
@@ -0,0 +1,92 @@
+package lsi4j;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The blocked scan in a pool gives the same answer as scanning the documents
+ * one by one
+ * 
+ * @author Jabier Martinez
+ */
+class ParallelScoringTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void blockedScanIsDeterministic() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Scan in one block and then in blocks of one document
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		double[] expected = lsiTechnique.applyLSI(query);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		double[] answer;
+		try {
+			lsiTechnique.setScoringPool(pool);
+			lsiTechnique.setScoringBlockSize(1);
+			answer = lsiTechnique.applyLSI(query);
+		} finally {
+			pool.shutdown();
+		}
+
+		// Step 2 Same similarities
+		assertArrayEquals(expected, answer, 0.0);
+	}
+
+	@Test
+	void topKMergesTheBlocks() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Get the 3 most similar documents scanning blocks of two documents
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		double[] all = lsiTechnique.applyLSI(query);
+		lsiTechnique.setScoringBlockSize(2);
+		List<ScoredDocument> top = lsiTechnique.applyLSI(query, 3);
+
+		// Step 2 Documents 2, 0 and 3 are the most similar in this order
+		assertEquals(3, top.size());
+		assertEquals(2, top.get(0).getDocument());
+		assertEquals(0, top.get(1).getDocument());
+		assertEquals(3, top.get(2).getDocument());
+		assertEquals(all[2], top.get(0).getSimilarity(), 0.0);
+	}
+
+	@Test
+	void allRanked() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Ask for all the documents ranked with the biggest k
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		lsiTechnique.setScoringBlockSize(2);
+		List<ScoredDocument> top = lsiTechnique.applyLSI(query, Integer.MAX_VALUE);
+		List<ScoredDocument> similar = lsiTechnique.getSimilarDocuments(0, Integer.MAX_VALUE);
+		List<ScoredTerm> terms = lsiTechnique.getSimilarTerms("human", Integer.MAX_VALUE);
+
+		// Step 2 All the documents and terms except the one compared
+		assertEquals(documents.size(), top.size());
+		assertEquals(2, top.get(0).getDocument());
+		assertEquals(documents.size() - 1, similar.size());
+		assertEquals(lsiTechnique.getTerms().size() - 1, terms.size());
+	}
+
+}
@@ -0,0 +1,124 @@
+package lsi4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Memory and throughput of a model stored in double and in float. The corpus
+ * is random with a Zipf distribution of the terms, it is counted in a
+ * {@link FloatColumns} matrix and decomposed with {@link RandomizedSVD}.
+ * 
+ * @author Jabier Martinez
+ */
+public class PrecisionBenchmark {
+
+	private PrecisionBenchmark() {
+	}
+
+	/**
+	 * Random documents whose words follow a Zipf distribution
+	 */
+	public static List<List<String>> zipfCorpus(int numberOfDocuments, int vocabulary, int length, long seed) {
+		double[] cumulative = new double[vocabulary];
+		double sum = 0;
+		for (int i = 0; i < vocabulary; i++) {
+			sum += 1.0 / (i + 1);
+			cumulative[i] = sum;
+		}
+		Random random = new Random(seed);
+		List<List<String>> documents = new ArrayList<List<String>>();
+		for (int d = 0; d < numberOfDocuments; d++) {
+			List<String> document = new ArrayList<String>();
+			// Each document is about a few topics, i.e. a few shifts of the ranks
+			int topic = random.nextInt(vocabulary);
+			for (int w = 0; w < length; w++) {
+				int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+				rank = rank < 0 ? -rank - 1 : rank;
+				document.add("w" + ((rank + (w % 2 == 0 ? topic : 0)) % vocabulary));
+			}
+			documents.add(document);
+		}
+		return documents;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int k = 100;
+		int top = 10;
+		List<List<String>> documents = zipfCorpus(50000, 20000, 60, 1);
+		List<String> terms = SparseMatrixFile.getDifferentTerms(documents);
+		FloatColumns matrix = FloatColumns.of(terms, documents);
+		System.out.println(String.format("%d documents, %d terms, %d non zeros (%.1f MB in float, %.1f MB in double)",
+				matrix.getColumnDimension(), matrix.getRowDimension(), matrix.getNonZeros(),
+				matrix.getNonZeros() * 8 / 1e6, matrix.getNonZeros() * 12 / 1e6));
+
+		List<List<String>> queries = new ArrayList<List<String>>();
+		Random random = new Random(2);
+		for (int n = 0; n < 500; n++) {
+			List<String> query = new ArrayList<String>();
+			for (int t = 0; t < 3; t++) {
+				query.add(terms.get(random.nextInt(Math.min(terms.size(), 2000))));
+			}
+			queries.add(query);
+		}
+
+		List<List<ScoredDocument>> reference = null;
+		String[] names = { "double", "float" };
+		int[] precisions = { LSI4J.PRECISION_DOUBLE, LSI4J.PRECISION_FLOAT };
+		for (int p = 0; p < precisions.length; p++) {
+			// The model keeps what it needs from the decomposition
+			long before = usedMemory();
+			TruncatedDecomposition decomposition = new RandomizedSVD().decompose(matrix, k);
+			LSI4J lsi = new LSI4J(terms, decomposition, precisions[p]);
+			decomposition = null;
+			long bytes = usedMemory() - before;
+
+			// Warm up, then measure
+			for (List<String> query : queries) {
+				lsi.applyLSI(query, top);
+			}
+			List<List<ScoredDocument>> answers = new ArrayList<List<ScoredDocument>>();
+			long start = System.nanoTime();
+			for (List<String> query : queries) {
+				answers.add(lsi.applyLSI(query, top));
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			double overlap = 1;
+			if (reference == null) {
+				reference = answers;
+			} else {
+				overlap = 0;
+				for (int n = 0; n < answers.size(); n++) {
+					Set<Integer> expected = new HashSet<Integer>();
+					for (ScoredDocument d : reference.get(n)) {
+						expected.add(d.getDocument());
+					}
+					int common = 0;
+					for (ScoredDocument d : answers.get(n)) {
+						if (expected.contains(d.getDocument())) {
+							common++;
+						}
+					}
+					overlap += common / (double) expected.size();
+				}
+				overlap /= answers.size();
+			}
+			System.out.println(String.format("%-7s model %6.1f MB  %8.1f queries/s  top %d overlap %.4f", names[p],
+					bytes / 1e6, queries.size() / seconds, top, overlap));
+			lsi = null;
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Removal of documents of the Human Interfaces Example
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class RemoveDocumentTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	// Runs the compaction in the thread that removes the document
+	private static final Executor SAME_THREAD = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void removedDocumentsAreSkipped() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Remove the most similar document
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		double[] all = lsiTechnique.applyLSI(query);
+		assertTrue(lsiTechnique.removeDocument(2));
+		assertFalse(lsiTechnique.removeDocument(2));
+		// Below the compaction threshold its vector is kept
+		assertEquals(1, lsiTechnique.getNumberOfRemovedVectors());
+
+		// Step 2 It is not in the answers anymore
+		assertEquals(0, lsiTechnique.applyLSI(query, 1).get(0).getDocument());
+		double[] answer = lsiTechnique.applyLSI(query);
+		assertEquals(-1, answer[2], 0.0);
+		assertEquals(all[0], answer[0], 0.0);
+		assertTrue(lsiTechnique.getSimilarDocuments(2, 3).isEmpty());
+		assertEquals(3, lsiTechnique.getSimilarDocuments(0, 1).get(0).getDocument());
+	}
+
+	@Test
+	void compaction() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Compact as soon as there is a removed document and be notified when
+		// 3% of the spectrum is removed
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		double[] all = lsiTechnique.applyLSI(query);
+		long bytes = lsiTechnique.getResidentBytes();
+		lsiTechnique.setCompaction(SAME_THREAD, 0.0);
+		final AtomicInteger notifications = new AtomicInteger();
+		lsiTechnique.setRedecompositionListener(0.03, new Runnable() {
+			@Override
+			public void run() {
+				notifications.incrementAndGet();
+			}
+		});
+		lsiTechnique.removeDocument(0);
+		lsiTechnique.removeDocument(5);
+
+		// Step 2 Same similarities for the other documents
+		double[] answer = lsiTechnique.applyLSI(query);
+		assertEquals(documents.size(), answer.length);
+		assertEquals(-1, answer[0], 0.0);
+		assertEquals(-1, answer[5], 0.0);
+		for (int i : new int[] { 1, 2, 3, 4, 6, 7, 8 }) {
+			assertEquals(all[i], answer[i], 0.0);
+		}
+		assertEquals(2, lsiTechnique.getNumberOfRemovedDocuments());
+		assertEquals(1, notifications.get());
+
+		// Step 3 The vectors of the removed documents were dropped
+		assertEquals(0, lsiTechnique.getNumberOfRemovedVectors());
+		assertTrue(lsiTechnique.getResidentBytes() < bytes);
+	}
+
+}
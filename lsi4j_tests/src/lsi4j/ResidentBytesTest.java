@@ -0,0 +1,72 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Heap used by a model of the Human Interfaces Example
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class ResidentBytesTest {
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void residentBytes() {
+		// Step 0 Set up
+		setUp();
+
+		// Step 1 The model keeps U_k and V_k (12 terms, 9 documents, k = 2)
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+		LSI4J floatLsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE,
+				LSI4J.PRECISION_FLOAT);
+		long bytes = lsi.getResidentBytes();
+		assertTrue(bytes >= 8 * (12 * 2 + 9 * 2));
+		assertEquals(bytes - 4 * (12 * 2 + 9 * 2), floatLsi.getResidentBytes());
+
+		// Step 2 The vectors of the similarities are created when they are needed
+		lsi.getSimilarDocuments(0, 3);
+		assertEquals(bytes + 8 * 9 * 2 + 8 * 9, lsi.getResidentBytes());
+
+		// Step 3 The compaction drops the vectors of the removed documents
+		long before = lsi.getResidentBytes();
+		lsi.removeDocument(5);
+		lsi.removeDocument(6);
+		lsi.removeDocument(7);
+		lsi.compact();
+		assertTrue(lsi.getResidentBytes() < before);
+		assertEquals(3, lsi.applyLSI(Arrays.asList("human", "computer", "interaction"), 3).size());
+	}
+
+	@Test
+	void tooBigForAnArray() {
+		// Step 0 Set up
+		setUp();
+
+		// Step 1 The size of the flat array is checked instead of wrapping
+		assertEquals(6, Factor.length(3, 2));
+		try {
+			Factor.length(30000000, 100);
+			fail("The size of the array wrapped");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("does not fit"));
+		}
+	}
+
+}
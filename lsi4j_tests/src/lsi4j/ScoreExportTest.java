@@ -0,0 +1,158 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Scores of many queries written to a file in the Human Interfaces Example
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class ScoreExportTest {
+
+	// Set queries
+	private static List<List<String>> queries;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		queries = new ArrayList<List<String>>();
+		queries.add(HumanInterfacesExample.query());
+		queries.add(Arrays.asList("graph", "tree"));
+		queries.add(Arrays.asList("user", "response"));
+		queries.add(Arrays.asList("system"));
+		queries.add(Arrays.asList("minors", "survey"));
+		documents = HumanInterfacesExample.documents();
+	}
+
+	/**
+	 * Read all the scores of a file as a matrix
+	 */
+	private static double[][] readAll(Path file, int numberOfQueries) throws IOException {
+		final double[][] scores = new double[numberOfQueries][documents.size()];
+		for (double[] row : scores) {
+			Arrays.fill(row, Double.NaN);
+		}
+		ScoreExport.read(file, new ScoreExport.ScoreVisitor() {
+			@Override
+			public void visit(int query, int[] documents, float[] values, int length) {
+				for (int i = 0; i < length; i++) {
+					scores[query][documents[i]] = values[i];
+				}
+			}
+		});
+		return scores;
+	}
+
+	@Test
+	void dense() throws IOException {
+		// Step 0 Set up
+		setUp();
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+
+		// Step 1 Write the scores with blocks of two queries
+		Path file = Files.createTempFile("lsi4j", ".scores");
+		Files.delete(file);
+		try {
+			ScoreExport export = new ScoreExport(lsi).setMemoryBudget(2 * 8 * documents.size());
+			assertEquals(2, export.getQueriesPerBlock());
+			assertEquals(queries.size(), export.write(file, queries));
+
+			// Step 2 Same scores as one query at a time
+			double[][] scores = readAll(file, queries.size());
+			for (int n = 0; n < queries.size(); n++) {
+				double[] expected = lsi.applyLSI(queries.get(n));
+				for (int d = 0; d < expected.length; d++) {
+					assertEquals(expected[d], scores[n][d], 1e-6);
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void sparse() throws IOException {
+		// Step 0 Set up
+		setUp();
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+
+		// Step 1 Write only the scores greater than 0.5
+		Path file = Files.createTempFile("lsi4j", ".scores");
+		Files.delete(file);
+		try {
+			assertEquals(queries.size(), new ScoreExport(lsi).setSparse(0.5).write(file, queries));
+
+			// Step 2 The other scores are not in the file
+			double[][] scores = readAll(file, queries.size());
+			for (int n = 0; n < queries.size(); n++) {
+				double[] expected = lsi.applyLSI(queries.get(n));
+				for (int d = 0; d < expected.length; d++) {
+					if (expected[d] >= 0.5) {
+						assertEquals(expected[d], scores[n][d], 1e-6);
+					} else {
+						assertTrue(Double.isNaN(scores[n][d]));
+					}
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void resume() throws IOException {
+		// Step 0 Set up
+		setUp();
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+		Path file = Files.createTempFile("lsi4j", ".scores");
+		Files.delete(file);
+		try {
+			// Step 1 The export stops in the middle of the fourth query
+			ScoreExport export = new ScoreExport(lsi).setSparse(-1);
+			assertEquals(4, export.write(file, queries.subList(0, 4)));
+			long size = Files.size(file);
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+			try {
+				channel.truncate(size - 10);
+			} finally {
+				channel.close();
+			}
+			assertEquals(3, ScoreExport.read(file, new ScoreExport.ScoreVisitor() {
+				@Override
+				public void visit(int query, int[] documents, float[] values, int length) {
+				}
+			}));
+
+			// Step 2 The export continues with the fourth query
+			assertEquals(queries.size(), export.write(file, queries));
+			assertEquals(size + (size - 32) / 4, Files.size(file));
+			double[][] scores = readAll(file, queries.size());
+			for (int n = 0; n < queries.size(); n++) {
+				double[] expected = lsi.applyLSI(queries.get(n));
+				for (int d = 0; d < expected.length; d++) {
+					assertEquals(expected[d], scores[n][d], 1e-6);
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
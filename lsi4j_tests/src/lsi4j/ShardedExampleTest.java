@@ -0,0 +1,85 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Human Interfaces Example with the documents split in shards
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class ShardedExampleTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void shardsGiveTheSameTopK() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 Split the documents of the model in three shards
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		ForkJoinPool pool = new ForkJoinPool(3);
+		List<ScoredDocument> expected;
+		List<ScoredDocument> answer;
+		try {
+			List<ShardClient> clients = new ArrayList<ShardClient>();
+			for (LSIShard shard : ShardedLSI.createShards(lsiTechnique, documents, 3, pool)) {
+				clients.add(new LocalShardClient(shard, executor));
+			}
+			ShardedLSI sharded = new ShardedLSI(lsiTechnique, clients);
+
+			// Step 2 Get the 5 most similar documents
+			expected = lsiTechnique.applyLSI(query, 5);
+			answer = sharded.applyLSI(query, 5);
+		} finally {
+			executor.shutdown();
+			pool.shutdown();
+		}
+
+		// Step 3 Same documents and similarities
+		assertEquals(expected.size(), answer.size());
+		for (int i = 0; i < answer.size(); i++) {
+			assertEquals(expected.get(i).getDocument(), answer.get(i).getDocument());
+			assertEquals(expected.get(i).getSimilarity(), answer.get(i).getSimilarity(), 0.000001);
+		}
+	}
+
+	@Test
+	void shardsKeepThePrecision() {
+		// Step 0 Set Up the variables
+		setUp();
+		LSI4J doubleModel = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0, LSI4J.SORT_NONE,
+				LSI4J.PRECISION_DOUBLE);
+		LSI4J floatModel = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0, LSI4J.SORT_NONE,
+				LSI4J.PRECISION_FLOAT);
+
+		// Step 1 The shards of a float model store their vectors in float
+		LSIShard doubleShard = ShardedLSI.createShard(doubleModel, documents, 0, documents.size(), null);
+		LSIShard floatShard = ShardedLSI.createShard(floatModel, documents, 0, documents.size(), null);
+		assertEquals(doubleShard.getResidentBytes() - 4L * documents.size() * 2,
+				floatShard.getResidentBytes());
+	}
+
+}
@@ -0,0 +1,50 @@
+package lsi4j;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Queries as term ids and weights give the same similarities as the list of
+ * words
+ * 
+ * @author Jabier Martinez
+ */
+class SparseQueryTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = Arrays.asList("human", "computer", "interaction", "computer");
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void termIdsAndWeights() {
+		// Step 0 Set Up the variables
+		setUp();
+
+		// Step 1 The same query with ids and weights (interaction is not a term)
+		LSI4J lsiTechnique = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2.0);
+		assertEquals(-1, lsiTechnique.getTermId("interaction"));
+		int[] termIds = { lsiTechnique.getTermId("Human"), lsiTechnique.getTermId("computer") };
+		float[] weights = { 1f, 2f };
+
+		// Step 2 Same similarities
+		double[] expected = lsiTechnique.applyLSI(query);
+		double[] answer = lsiTechnique.applyLSI(termIds, weights);
+		assertArrayEquals(expected, answer, 0.000000001);
+		assertEquals(2, lsiTechnique.applyLSI(termIds, weights, 1).get(0).getDocument());
+	}
+
+}
@@ -0,0 +1,127 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Structured documents and n-grams in the Human Interfaces Example
+ * 
+ * http://www-db.deis.unibo.it/courses/SI-M/slides/03.2.LSI.pdf
+ * 
+ * @author Jabier Martinez
+ */
+class TermExpansionTest {
+
+	// Set query
+	private static List<String> query;
+
+	// Set documents
+	private static List<List<String>> documents;
+
+	@Before
+	public void setUp() {
+		query = HumanInterfacesExample.query();
+		documents = HumanInterfacesExample.documents();
+	}
+
+	@Test
+	void counts() throws IOException {
+		// Step 0 Set up
+		setUp();
+		TermExpansion expansion = new TermExpansion().setNGrams(1, 2).setFieldWeight("title", 2);
+		StructuredDocument document = new StructuredDocument().addField("title", Arrays.asList("Human", "Computer"))
+				.addField("body", Arrays.asList("interface", "human"));
+
+		// Step 1 The bigrams do not cross the fields
+		List<String> terms = expansion.getDifferentTerms(Arrays.asList(document));
+		assertEquals(Arrays.asList("human", "human computer", "computer", "interface", "interface human"), terms);
+
+		// Step 2 Each occurrence counts the weight of its field
+		final double[] counts = new double[terms.size()];
+		FloatColumns.of(terms, Arrays.asList(document), expansion).forEachColumn(new ColumnSource.ColumnVisitor() {
+			@Override
+			public void visit(int column, int[] rows, double[] values, int length) {
+				for (int i = 0; i < length; i++) {
+					counts[rows[i]] = values[i];
+				}
+			}
+		});
+		assertEquals(3, counts[0], 0);
+		assertEquals(2, counts[1], 0);
+		assertEquals(2, counts[2], 0);
+		assertEquals(1, counts[3], 0);
+		assertEquals(1, counts[4], 0);
+	}
+
+	@Test
+	void defaultExpansion() {
+		// Step 0 Set up
+		setUp();
+		List<StructuredDocument> structured = new ArrayList<StructuredDocument>();
+		for (List<String> document : documents) {
+			structured.add(StructuredDocument.of(document));
+		}
+
+		// Step 1 The unigrams with weight 1 are the plain documents
+		LSI4J lsi = new LSI4J(documents, LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.SORT_NONE);
+		LSI4J structuredLsi = new LSI4J(structured, new TermExpansion(), LSI4J.APPROXIMATION_K_VALUE, 2,
+				LSI4J.PRECISION_DOUBLE);
+		assertEquals(lsi.getTerms(), structuredLsi.getTerms());
+		double[] expected = lsi.applyLSI(query);
+		double[] results = structuredLsi.applyLSI(query);
+		for (int d = 0; d < expected.length; d++) {
+			assertEquals(expected[d], results[d], 1e-9);
+		}
+	}
+
+	@Test
+	void bigramQuery() {
+		// Step 0 Set up
+		setUp();
+		List<StructuredDocument> structured = new ArrayList<StructuredDocument>();
+		for (List<String> document : documents) {
+			structured.add(StructuredDocument.of(document));
+		}
+		LSI4J lsi = new LSI4J(structured, new TermExpansion().setNGrams(1, 2), LSI4J.APPROXIMATION_K_VALUE, 2,
+				LSI4J.PRECISION_DOUBLE);
+		assertTrue(lsi.getTermId("Human Interface") >= 0);
+		assertEquals(-1, lsi.getTermId("interface human"));
+
+		// Step 1 The query is expanded with its bigrams
+		int[] termIds = { lsi.getTermId("human"), lsi.getTermId("interface"), lsi.getTermId("human interface") };
+		double[] expected = lsi.applyLSI(termIds, new float[] { 1, 1, 1 });
+		double[] results = lsi.applyLSI(Arrays.asList("Human", "Interface"));
+		for (int d = 0; d < expected.length; d++) {
+			assertEquals(expected[d], results[d], 1e-9);
+		}
+	}
+
+	@Test
+	void queryFieldWeight() {
+		// Step 0 Set up
+		setUp();
+		List<StructuredDocument> structured = new ArrayList<StructuredDocument>();
+		for (List<String> document : documents) {
+			structured.add(StructuredDocument.of(document));
+		}
+		LSI4J lsi = new LSI4J(structured, new TermExpansion().setFieldWeight(StructuredDocument.DEFAULT_FIELD, 3),
+				LSI4J.APPROXIMATION_K_VALUE, 2, LSI4J.PRECISION_DOUBLE);
+
+		// Step 1 The query has the weight of the default field as the documents
+		double[] weighted = lsi.foldIn(query);
+		lsi.setTermExpansion(new TermExpansion());
+		double[] unweighted = lsi.foldIn(query);
+		for (int j = 0; j < weighted.length; j++) {
+			assertEquals(3 * unweighted[j], weighted[j], 1e-9);
+		}
+	}
+
+}
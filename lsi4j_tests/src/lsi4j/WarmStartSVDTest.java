@@ -0,0 +1,128 @@
+package lsi4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rebuild of a model after a few documents changed, starting from the subspace
+ * of the previous model
+ * 
+ * @author Jabier Martinez
+ */
+class WarmStartSVDTest {
+
+	// Number of singular values and vectors
+	private static int k;
+
+	// Documents of the previous model and the ones after some changes
+	private static List<List<String>> documents;
+	private static List<List<String>> changedDocuments;
+
+	@Before
+	public void setUp() {
+		k = 10;
+		Random random = new Random(1);
+		documents = new ArrayList<List<String>>();
+		for (int d = 0; d < 1000; d++) {
+			documents.add(document(random));
+		}
+		// 3% of the documents are replaced, some of them with new terms
+		changedDocuments = new ArrayList<List<String>>(documents);
+		for (int n = 0; n < 30; n++) {
+			List<String> document = document(random);
+			document.add("new" + n);
+			changedDocuments.set(random.nextInt(documents.size()), document);
+		}
+	}
+
+	/**
+	 * A document about one of 20 topics, the first topics have more documents
+	 */
+	private static List<String> document(Random random) {
+		int topic = 0;
+		while (topic < 19 && random.nextDouble() < 0.85) {
+			topic++;
+		}
+		List<String> words = new ArrayList<String>();
+		int length = 5 + random.nextInt(20);
+		for (int i = 0; i < length; i++) {
+			int word = random.nextDouble() < 0.8 ? topic * 15 + random.nextInt(15) : random.nextInt(300);
+			words.add("w" + word);
+		}
+		return words;
+	}
+
+	@Test
+	void warmStart() throws Exception {
+		// Step 0 Set up
+		setUp();
+		LSI4J previous = new LSI4J(documents, new WarmStartSVD(null), k, LSI4J.PRECISION_DOUBLE);
+
+		// Step 1 Rebuild from random vectors and from the previous model
+		WarmStartSVD cold = new WarmStartSVD(null);
+		new LSI4J(changedDocuments, cold, k, LSI4J.PRECISION_DOUBLE);
+		WarmStartSVD warm = new WarmStartSVD(previous);
+		LSI4J lsi = new LSI4J(changedDocuments, warm, k, LSI4J.PRECISION_DOUBLE);
+		assertTrue(cold.getMaxResidual() <= 1e-4);
+		assertTrue(warm.getMaxResidual() <= 1e-4);
+		assertEquals(k, warm.getResiduals().length);
+		assertTrue(warm.getIterations() < cold.getIterations());
+
+		// Step 2 Same singular values as a decomposition with a lower tolerance
+		List<String> terms = lsi.getTerms();
+		ColumnSource a = FloatColumns.of(terms, changedDocuments);
+		double[] expected = new WarmStartSVD(null).setTolerance(1e-10).decompose(a, terms, k)
+				.getSingularValues();
+		double[] singularValues = warm.decompose(a, terms, k).getSingularValues();
+		for (int i = 0; i < k; i++) {
+			assertEquals(expected[i], singularValues[i], 1e-6 * expected[0]);
+		}
+	}
+
+	@Test
+	void knownSpectrum() throws Exception {
+		// Step 0 Set up
+		setUp();
+		double[] spectrum = KnownSpectrumMatrix.decayingSpectrum(150, 0.8);
+		DecompositionValidation validation = new DecompositionValidation(
+				KnownSpectrumMatrix.create(200, 150, spectrum, 5, 1), spectrum, k, 50, 1);
+
+		// Step 1 From random vectors it finds the spectrum of the matrix
+		WarmStartSVD svd = new WarmStartSVD(null).setTolerance(1e-8);
+		DecompositionValidation.Result result = validation.validate(svd, 10);
+		assertTrue(svd.getMaxResidual() <= 1e-8);
+		assertTrue(result.singularValueError < 1e-6);
+		assertTrue(result.angleU < 1e-3);
+		assertTrue(result.angleV < 1e-3);
+	}
+
+	@Test
+	void termExpansion() throws Exception {
+		// Step 0 Set up
+		setUp();
+		List<StructuredDocument> structured = new ArrayList<StructuredDocument>();
+		for (List<String> document : documents) {
+			structured.add(StructuredDocument.of(document));
+		}
+		TermExpansion expansion = new TermExpansion().setNGrams(1, 2);
+		LSI4J previous = new LSI4J(structured, expansion, new WarmStartSVD(null), k, LSI4J.PRECISION_DOUBLE);
+		String bigram = documents.get(0).get(0) + " " + documents.get(0).get(1);
+		assertTrue(previous.getTermId(bigram) >= 0);
+
+		// Step 1 The rebuild from plain documents keeps the bigrams and the expansion
+		WarmStartSVD warm = new WarmStartSVD(previous);
+		LSI4J lsi = new LSI4J(changedDocuments, warm, k, LSI4J.PRECISION_DOUBLE);
+		assertTrue(warm.getMaxResidual() <= 1e-4);
+		assertTrue(lsi.getTermExpansion() == expansion);
+		assertTrue(lsi.getTermId(bigram) >= 0);
+		assertEquals(expansion.getDifferentTerms(StructuredDocument.ofAll(changedDocuments)), lsi.getTerms());
+	}
+
+}